@@ -0,0 +1,172 @@
+import ethioskill.filters.AuthFilter;
+import ethioskill.models.User;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import java.lang.reflect.Proxy;
+
+/**
+ * Measures what AuthFilter adds to each request, next to the linear
+ * startsWith/contains checks it used before the route table. Requests are
+ * stand-in objects that answer only what the filter asks, so the numbers
+ * are the filter's own cost without Tomcat around it.
+ *
+ * Build the app classes first, then from the repository root:
+ *
+ *   javac -cp "out:webapp/WEB-INF/lib/*" -d out benchmarks/AuthFilterBenchmark.java
+ *   java -cp "out:webapp/WEB-INF/lib/*" AuthFilterBenchmark
+ *
+ * The mix follows a dashboard visit: mostly images, a page, then API calls.
+ */
+public class AuthFilterBenchmark {
+
+    private static final String[] PATHS = {
+        "/images/logo.png", "/images/city.jpg", "/images/users.jpg", "/images/search-icon.png",
+        "/images/booking-icon.png", "/images/notification-icon.png", "/uploads/photo_12.jpg",
+        "/pages/seeker-dashboard.html", "/SeekerServlet", "/SeekerServlet", "/NotificationStreamServlet",
+        "/pages/login.html"
+    };
+    private static final long WARMUP_NANOS = 2_000_000_000L;
+    private static final long RUN_NANOS = 3_000_000_000L;
+
+    private static volatile int sink;
+
+    public static void main(String[] args) throws Exception {
+        User seeker = new User();
+        seeker.setId(1);
+        seeker.setRole("Seeker");
+        HttpSession session = session(seeker);
+
+        HttpServletRequest[] requests = new HttpServletRequest[PATHS.length];
+        for (int i = 0; i < PATHS.length; i++) {
+            requests[i] = request(PATHS[i], session);
+        }
+        HttpServletResponse response = response();
+        FilterChain chain = (req, res) -> sink++;
+
+        AuthFilter filter = new AuthFilter();
+        Step table = (req, res) -> filter.doFilter(req, res, chain);
+        Step linear = (req, res) -> legacyFilter((HttpServletRequest) req, (HttpServletResponse) res, chain);
+
+        System.out.printf("%-22s %14s%n", "filter", "ns per request");
+        for (int round = 0; round < 2; round++) {
+            System.out.printf("%-22s %14.1f%n", "linear checks (old)", measure(linear, requests, response));
+            System.out.printf("%-22s %14.1f%n", "route table", measure(table, requests, response));
+        }
+    }
+
+    private interface Step {
+        void run(ServletRequest request, ServletResponse response) throws Exception;
+    }
+
+    private static double measure(Step step, HttpServletRequest[] requests, HttpServletResponse response)
+            throws Exception {
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            for (HttpServletRequest request : requests) {
+                step.run(request, response);
+            }
+        }
+
+        long count = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int rep = 0; rep < 1000; rep++) {
+                for (HttpServletRequest request : requests) {
+                    step.run(request, response);
+                }
+            }
+            count += 1000L * requests.length;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < RUN_NANOS);
+        return elapsed / (double) count;
+    }
+
+    // ================= OLD FILTER, FOR COMPARISON =================
+
+    private static final String[] PUBLIC_PATHS = {
+        "/pages/login.html", "/pages/signup.html", "/LoginServlet", "/SignupServlet",
+        "/images/", "/css/", "/js/", "/uploads/"
+    };
+
+    private static void legacyFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws Exception {
+        HttpSession session = request.getSession(false);
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader("X-Frame-Options", "DENY");
+        response.setHeader("X-XSS-Protection", "1; mode=block");
+
+        if (session != null && request.getRequestURL().toString().contains("LoginServlet")) {
+            // no-op in the old filter, but the URL was still built
+        }
+        for (String publicPath : PUBLIC_PATHS) {
+            if (path.startsWith(publicPath)) {
+                chain.doFilter(request, response);
+                return;
+            }
+        }
+        if (session == null || session.getAttribute("user") == null) {
+            return;
+        }
+        String role = ((User) session.getAttribute("user")).getRole();
+        if ((path.startsWith("/AdminServlet") || path.contains("admin-dashboard")) && !"Admin".equals(role)) {
+            return;
+        }
+        if ((path.startsWith("/ProviderServlet") || path.contains("provider-dashboard") ||
+             path.contains("provider-register") || path.contains("service-form")) && !"Provider".equals(role)) {
+            return;
+        }
+        if ((path.startsWith("/SeekerServlet") || path.contains("seeker-dashboard") ||
+             path.contains("booking-form")) && !"Seeker".equals(role)) {
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    // ================= STAND-IN CONTAINER OBJECTS =================
+
+    private static HttpServletRequest request(String path, HttpSession session) {
+        String contextPath = "/EthioSkill";
+        String uri = contextPath + path;
+        StringBuffer url = new StringBuffer("http://localhost:8080" + uri);
+        return (HttpServletRequest) Proxy.newProxyInstance(AuthFilterBenchmark.class.getClassLoader(),
+            new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getServletPath": return path;
+                    case "getPathInfo": return null;
+                    case "getContextPath": return contextPath;
+                    case "getRequestURI": return uri;
+                    case "getRequestURL": return new StringBuffer(url);
+                    case "getSession": return session;
+                    default: throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    private static HttpSession session(User user) {
+        return (HttpSession) Proxy.newProxyInstance(AuthFilterBenchmark.class.getClassLoader(),
+            new Class<?>[] { HttpSession.class }, (proxy, method, args) -> {
+                if ("getAttribute".equals(method.getName())) {
+                    return "user".equals(args[0]) ? user : null;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static HttpServletResponse response() {
+        return (HttpServletResponse) Proxy.newProxyInstance(AuthFilterBenchmark.class.getClassLoader(),
+            new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+                if ("setHeader".equals(method.getName())) {
+                    return null;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
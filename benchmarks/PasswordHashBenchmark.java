@@ -0,0 +1,101 @@
+import ethioskill.utils.PasswordUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures what each PBKDF2 cost setting costs on this machine, to pick
+ * PASSWORD_HASH_ITERATIONS. For every iteration count it prints the time of
+ * one hash on one thread and the hashes per second with one thread per core,
+ * which is the most logins per second the hashing pool can verify.
+ *
+ * Build the app classes first, then from the repository root:
+ *
+ *   javac -cp out -d out benchmarks/PasswordHashBenchmark.java
+ *   java -cp out PasswordHashBenchmark [iterations ...]
+ *
+ * Pick the largest setting that keeps one hash well under a quarter of a
+ * second and whose pooled rate covers the expected peak login rate.
+ *
+ * The JIT is warmed up once before anything is timed, and every setting
+ * gets its own warm-up on one thread and on the pool before it is sampled,
+ * so the first setting in the list is not measured on colder code than the
+ * rest.
+ */
+public class PasswordHashBenchmark {
+
+    private static final int[] DEFAULT_SETTINGS = { 50000, 100000, 210000, 310000, 600000 };
+    private static final long JIT_WARMUP_NANOS = 5_000_000_000L;
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final int MIN_SAMPLES = 5;
+    private static final long MIN_SAMPLE_NANOS = 2_000_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        int[] settings = DEFAULT_SETTINGS;
+        if (args.length > 0) {
+            settings = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                settings[i] = Integer.parseInt(args[i]);
+            }
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("PBKDF2-HMAC-SHA256, %d core(s), configured default %d%n",
+            cores, PasswordUtil.DEFAULT_ITERATIONS);
+        System.out.printf("%12s %14s %18s%n", "iterations", "ms per hash", "hashes/s (pool)");
+
+        // Let the JIT settle before the first setting is timed
+        for (int iterations : settings) {
+            warmUp(iterations, JIT_WARMUP_NANOS / settings.length);
+        }
+
+        for (int iterations : settings) {
+            warmUp(iterations, WARMUP_NANOS);
+            pooled(iterations, cores);
+            double msPerHash = singleThread(iterations);
+            double perSecond = pooled(iterations, cores);
+            System.out.printf("%12d %14.1f %18.1f%n", iterations, msPerHash, perSecond);
+        }
+    }
+
+    private static void warmUp(int iterations, long nanos) {
+        int hashes = 0;
+        long end = System.nanoTime() + nanos;
+        while (hashes < MIN_SAMPLES || System.nanoTime() < end) {
+            PasswordUtil.hash("warmup-" + hashes, iterations);
+            hashes++;
+        }
+    }
+
+    private static double singleThread(int iterations) {
+        int samples = 0;
+        long start = System.nanoTime();
+        while (samples < MIN_SAMPLES || System.nanoTime() - start < MIN_SAMPLE_NANOS) {
+            PasswordUtil.hash("benchmark-password-" + samples, iterations);
+            samples++;
+        }
+        return (System.nanoTime() - start) / 1e6 / samples;
+    }
+
+    private static double pooled(int iterations, int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            int total = Math.max(MIN_SAMPLES, threads * 4);
+            long start = System.nanoTime();
+            List<Future<String>> results = new ArrayList<>(total);
+            for (int i = 0; i < total; i++) {
+                String password = "benchmark-password-" + i;
+                results.add(pool.submit(() -> PasswordUtil.hash(password, iterations)));
+            }
+            for (Future<String> result : results) {
+                result.get();
+            }
+            return total / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
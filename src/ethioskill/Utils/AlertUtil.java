@@ -1,12 +1,36 @@
 package ethioskill.utils;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.function.Function;
 
 public class AlertUtil {
     
-    private static final Gson gson = new Gson();
+    /**
+     * The one Gson instance shared by every controller. Gson is thread-safe,
+     * so there is no reason to build a new one (and re-scan reflection data)
+     * per request. java.time values are written as ISO-8601 strings.
+     */
+    public static final Gson GSON = new GsonBuilder()
+        .registerTypeAdapter(LocalDate.class, new IsoAdapter<>(LocalDate::parse).nullSafe())
+        .registerTypeAdapter(LocalDateTime.class, new IsoAdapter<>(LocalDateTime::parse).nullSafe())
+        .create();
+    
+    /**
+     * Maps the current row of a ResultSet to an object to serialize.
+     */
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
     
     /**
      * Sanitizes output to prevent XSS
@@ -21,27 +45,69 @@ public class AlertUtil {
     }
     
     public static void sendError(HttpServletResponse response, String message) throws IOException {
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        response.getWriter().write(new Gson().toJson(
-            new Response(false, sanitizeOutput(message))
-        ));
+        // An error must not be revalidated later as "not modified"
+        if (!response.isCommitted()) {
+            response.setHeader("ETag", null);
+            response.setHeader("Last-Modified", null);
+            response.setHeader("Cache-Control", "no-store");
+        }
+        sendJson(response, new Response(false, sanitizeOutput(message)));
     }
     
     public static void sendSuccess(HttpServletResponse response, String message) throws IOException {
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        response.getWriter().write(new Gson().toJson(
-            new Response(true, sanitizeOutput(message))
-        ));
+        sendJson(response, new Response(true, sanitizeOutput(message)));
     }
     
     public static void sendSuccess(HttpServletResponse response, Object data) throws IOException {
+        sendJson(response, new DataResponse(true, "Success", data));
+    }
+    
+    /**
+     * Serializes any object straight to the response writer,
+     * without building the whole JSON string in memory first.
+     */
+    public static void sendJson(HttpServletResponse response, Object body) throws IOException {
+        prepareJson(response);
+        JsonWriter writer = new JsonWriter(response.getWriter());
+        GSON.toJson(body, body.getClass(), writer);
+        writer.flush();
+    }
+    
+    /**
+     * Streams a ResultSet as {"data": [...], "success": ..., "message": ...}
+     * one row at a time. The JSON never holds more than the current row, but
+     * Connector/J buffers the whole result on its side unless the statement was
+     * created forward-only, read-only with setFetchSize(Integer.MIN_VALUE).
+     * If reading fails part-way, the array is closed and success is false.
+     */
+    public static <T> void streamResultSet(HttpServletResponse response, ResultSet rs,
+                                           RowMapper<T> mapper) throws IOException {
+        prepareJson(response);
+        JsonWriter writer = new JsonWriter(response.getWriter());
+        writer.beginObject();
+        writer.name("data").beginArray();
+        
+        boolean success = true;
+        try {
+            while (rs.next()) {
+                T row = mapper.map(rs);
+                GSON.toJson(row, row.getClass(), writer);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            success = false;
+        }
+        
+        writer.endArray();
+        writer.name("success").value(success);
+        writer.name("message").value(success ? "Success" : "Database error");
+        writer.endObject();
+        writer.flush();
+    }
+    
+    private static void prepareJson(HttpServletResponse response) {
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
-        response.getWriter().write(new Gson().toJson(
-            new DataResponse(true, "Success", data)
-        ));
     }
     
     // Response classes
@@ -69,4 +135,23 @@ public class AlertUtil {
         
         public Object getData() { return data; }
     }
-}
\ No newline at end of file
+    
+    // Reads and writes java.time values via their ISO-8601 toString/parse
+    private static class IsoAdapter<T> extends TypeAdapter<T> {
+        private final Function<String, T> parser;
+        
+        IsoAdapter(Function<String, T> parser) {
+            this.parser = parser;
+        }
+        
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+            out.value(value.toString());
+        }
+        
+        @Override
+        public T read(JsonReader in) throws IOException {
+            return parser.apply(in.nextString());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ethioskill.utils;
+
+import ethioskill.database.DataVersions;
+import ethioskill.database.DataVersions.Domain;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+public class ConditionalGet {
+
+    /**
+     * Sets ETag and Last-Modified for a GET built from the given data, and
+     * answers 304 if the client's copy is still current. Call it before any
+     * query runs; when it returns true the response is already complete.
+     *
+     * @param scope distinguishes per-user responses that share a URL, or null
+     */
+    public static boolean notModified(HttpServletRequest request, HttpServletResponse response,
+                                      String scope, Domain... domains) {
+        String etag = DataVersions.etag(scope, domains);
+        long lastModified = DataVersions.lastModified(domains);
+
+        // Browsers may keep the copy but must ask before using it
+        return notModified(request, response, etag, lastModified, "private, no-cache");
+    }
+
+    /**
+     * The same check for a response whose ETag is already known, such as a
+     * static file, with the caller's cache policy.
+     */
+    public static boolean notModified(HttpServletRequest request, HttpServletResponse response,
+                                      String etag, long lastModified, String cacheControl) {
+        response.setHeader("Cache-Control", cacheControl);
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", lastModified);
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        boolean fresh;
+        if (ifNoneMatch != null) {
+            // If-None-Match wins over If-Modified-Since when both are sent
+            fresh = matches(ifNoneMatch, etag);
+        } else {
+            long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+            // HTTP dates have one-second resolution
+            fresh = ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        }
+
+        if (fresh) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return fresh;
+    }
+
+    // Weak comparison: W/"x" and "x" are the same tag (gzip may add or drop the W/)
+    private static boolean matches(String ifNoneMatch, String etag) {
+        String opaque = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || stripWeak(tag).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,37 @@
+package ethioskill.utils;
+
+/**
+ * Numeric settings read from environment variables.
+ *
+ * An unset or blank variable gives the default. A value that is not a number
+ * or is below the allowed minimum is reported on stderr and also gives the
+ * default, so a typo never stops the application from starting.
+ */
+public final class EnvConfig {
+
+    private EnvConfig() {}
+
+    /**
+     * A positive number; zero and negative values fall back to the default.
+     */
+    public static long readLong(String name, long defaultValue) {
+        return readLong(name, defaultValue, 1);
+    }
+
+    public static long readLong(String name, long defaultValue, long min) {
+        String value = System.getenv(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed >= min) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        System.err.println("Ignoring invalid " + name + " value: " + value);
+        return defaultValue;
+    }
+}
@@ -0,0 +1,223 @@
+package ethioskill.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate limit for login attempts, checked before any database or hashing
+ * work is done.
+ *
+ * Every phone number and every client address gets a token bucket: a burst
+ * of LOGIN_*_BURST attempts, refilled at LOGIN_*_PER_MINUTE. An attempt
+ * needs a token from both. Buckets live in lock-striped maps, so attempts for
+ * different keys rarely contend. A bucket that has refilled completely
+ * behaves exactly like a missing one, so a periodic sweep drops those and
+ * memory only holds keys that were used recently.
+ *
+ * A successful login refills the phone's bucket so its owner is not held
+ * back by earlier typos. The client address is the connection's remote
+ * address; behind a reverse proxy configure Tomcat's RemoteIpValve so it
+ * reflects the real client.
+ */
+public class LoginThrottle {
+
+    private static final int STRIPES = 64;
+    private static final int MAX_KEYS_PER_STRIPE = 4096;
+    private static final long SWEEP_INTERVAL_SECONDS = 60;
+
+    private static final Limiter byPhone = new Limiter(
+        EnvConfig.readLong("LOGIN_PHONE_BURST", 5), EnvConfig.readLong("LOGIN_PHONE_PER_MINUTE", 1));
+    private static final Limiter byAddress = new Limiter(
+        EnvConfig.readLong("LOGIN_ADDRESS_BURST", 20), EnvConfig.readLong("LOGIN_ADDRESS_PER_MINUTE", 10));
+
+    private static final AtomicLong allowed = new AtomicLong();
+    private static ScheduledExecutorService sweeper;
+
+    private LoginThrottle() {}
+
+    /**
+     * Takes one attempt from the address's and the phone's budget.
+     *
+     * @return 0 if the attempt may go ahead, otherwise the number of seconds
+     *         until it would be allowed (for a Retry-After header)
+     */
+    public static long tryAcquire(String phone, String address) {
+        ensureSweeper();
+        long wait = byAddress.tryAcquire(address);
+        if (wait == 0) {
+            wait = byPhone.tryAcquire(phone);
+        }
+        if (wait == 0) {
+            allowed.incrementAndGet();
+            return 0;
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    /**
+     * Gives the phone number its full budget back after a successful login.
+     */
+    public static void succeeded(String phone) {
+        byPhone.reset(phone);
+    }
+
+    public static Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("allowed", allowed.get());
+        stats.put("rejectedByPhone", byPhone.rejected.get());
+        stats.put("rejectedByAddress", byAddress.rejected.get());
+        stats.put("trackedPhones", byPhone.size());
+        stats.put("trackedAddresses", byAddress.size());
+        return stats;
+    }
+
+    // ================= BUCKETS =================
+
+    private static final class Bucket {
+        double tokens;
+        long updatedAt; // System.nanoTime()
+    }
+
+    /**
+     * Token buckets for one kind of key, spread over STRIPES independently
+     * locked maps.
+     */
+    private static final class Limiter {
+        final double capacity;
+        final double tokensPerNano;
+        final List<Map<String, Bucket>> stripes = new ArrayList<>(STRIPES);
+        final AtomicLong rejected = new AtomicLong();
+
+        Limiter(long burst, long perMinute) {
+            this.capacity = burst;
+            this.tokensPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            for (int i = 0; i < STRIPES; i++) {
+                // Insertion order lets an overfull stripe drop its oldest keys first
+                stripes.add(new LinkedHashMap<>());
+            }
+        }
+
+        /**
+         * @return 0 if a token was taken, otherwise nanoseconds until one is available
+         */
+        long tryAcquire(String key) {
+            if (key == null) key = "";
+            Map<String, Bucket> stripe = stripeFor(key);
+            long now = System.nanoTime();
+            synchronized (stripe) {
+                Bucket bucket = stripe.get(key);
+                if (bucket == null) {
+                    if (stripe.size() >= MAX_KEYS_PER_STRIPE) {
+                        sweepLocked(stripe, now);
+                        trimLocked(stripe);
+                    }
+                    bucket = new Bucket();
+                    bucket.tokens = capacity;
+                    bucket.updatedAt = now;
+                    stripe.put(key, bucket);
+                } else {
+                    refill(bucket, now);
+                }
+
+                if (bucket.tokens >= 1) {
+                    bucket.tokens -= 1;
+                    return 0;
+                }
+                rejected.incrementAndGet();
+                return (long) Math.ceil((1 - bucket.tokens) / tokensPerNano);
+            }
+        }
+
+        void reset(String key) {
+            if (key == null) return;
+            Map<String, Bucket> stripe = stripeFor(key);
+            synchronized (stripe) {
+                stripe.remove(key);
+            }
+        }
+
+        void sweep() {
+            long now = System.nanoTime();
+            for (Map<String, Bucket> stripe : stripes) {
+                synchronized (stripe) {
+                    sweepLocked(stripe, now);
+                }
+            }
+        }
+
+        int size() {
+            int total = 0;
+            for (Map<String, Bucket> stripe : stripes) {
+                synchronized (stripe) {
+                    total += stripe.size();
+                }
+            }
+            return total;
+        }
+
+        private void refill(Bucket bucket, long now) {
+            bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.updatedAt) * tokensPerNano);
+            bucket.updatedAt = now;
+        }
+
+        private void sweepLocked(Map<String, Bucket> stripe, long now) {
+            Iterator<Bucket> it = stripe.values().iterator();
+            while (it.hasNext()) {
+                Bucket bucket = it.next();
+                refill(bucket, now);
+                if (bucket.tokens >= capacity) {
+                    it.remove();
+                }
+            }
+        }
+
+        private void trimLocked(Map<String, Bucket> stripe) {
+            Iterator<Bucket> it = stripe.values().iterator();
+            while (stripe.size() >= MAX_KEYS_PER_STRIPE && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+
+        private Map<String, Bucket> stripeFor(String key) {
+            int h = key.hashCode();
+            h ^= (h >>> 16);
+            return stripes.get((h & 0x7fffffff) % STRIPES);
+        }
+    }
+
+    // ================= LIFECYCLE =================
+
+    private static synchronized void ensureSweeper() {
+        if (sweeper != null) return;
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "login-throttle-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                byPhone.sweep();
+                byAddress.sweep();
+            } catch (RuntimeException e) {
+                // Never let the scheduled task die
+                System.err.println("Login throttle sweep failed: " + e.getMessage());
+            }
+        }, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+}
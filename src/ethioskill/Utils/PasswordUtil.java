@@ -1,74 +1,122 @@
 package ethioskill.utils;
 
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.security.spec.KeySpec;
 import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
 
+/**
+ * Password hashing with PBKDF2-HMAC-SHA256.
+ *
+ * Stored hashes look like {@code $pbkdf2-sha256$<iterations>$<salt>$<hash>},
+ * so the cost travels with each hash and can be raised later through
+ * PASSWORD_HASH_ITERATIONS; {@link #needsRehash} tells the login code when a
+ * stored hash is weaker than the current setting. Hashes from the old
+ * single-pass SHA-256 scheme ({@code salt:hash}) still verify and always
+ * need a rehash.
+ *
+ * Hashing is deliberately slow, so it runs on a pool with one thread per
+ * core (PASSWORD_HASH_THREADS) and a bounded queue (PASSWORD_HASH_QUEUE).
+ * When the queue is full work is refused with RejectedExecutionException
+ * instead of piling up, and a login burst cannot tie up every request thread.
+ */
 public class PasswordUtil {
-    
-    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private static final String PBKDF2_ID = "pbkdf2-sha256";
+    private static final String PBKDF2_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String LEGACY_ALGORITHM = "SHA-256";
     private static final int SALT_LENGTH = 16; // 16 bytes = 128 bits
-    
+    private static final int KEY_LENGTH_BITS = 256;
+
+    // See benchmarks/PasswordHashBenchmark.java for what each setting costs
+    public static final int DEFAULT_ITERATIONS = 210000;
+    public static final int MIN_ITERATIONS = 10000;
+    private static final int DEFAULT_QUEUE = 100;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int ITERATIONS = Math.max(MIN_ITERATIONS,
+        (int) EnvConfig.readLong("PASSWORD_HASH_ITERATIONS", DEFAULT_ITERATIONS));
+
+    private static ThreadPoolExecutor pool;
+
+    private static volatile String dummyHash;
+
+    // ================= HASHING (on the pool) =================
+
     /**
-     * Hashes a password with a random salt
-     * @param password The plain text password
-     * @return A string containing the salt and hashed password, separated by ':'
+     * Hashes a password with a random salt at the current cost. The work runs
+     * on the hashing pool; the caller waits for it.
+     *
+     * @return the encoded hash, including algorithm, cost and salt
+     * @throws RejectedExecutionException if the hashing queue is full
      */
     public static String hashPassword(String password) {
-        try {
-            // Generate a random salt
-            SecureRandom random = new SecureRandom();
-            byte[] salt = new byte[SALT_LENGTH];
-            random.nextBytes(salt);
-            
-            // Hash the password with the salt
-            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
-            digest.update(salt);
-            byte[] hashedPassword = digest.digest(password.getBytes());
-            
-            // Combine salt and hashed password
-            String saltBase64 = Base64.getEncoder().encodeToString(salt);
-            String hashedPasswordBase64 = Base64.getEncoder().encodeToString(hashedPassword);
-            
-            return saltBase64 + ":" + hashedPasswordBase64;
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Error hashing password", e);
-        }
+        return await(hashPasswordAsync(password));
     }
-    
+
     /**
-     * Verifies a password against a stored hash
-     * @param password The plain text password to verify
-     * @param storedHash The stored hash (salt:hashedPassword)
-     * @return true if the password matches the hash, false otherwise
+     * Verifies a password against a stored hash in either format. The work
+     * runs on the hashing pool; the caller waits for it.
+     *
+     * @throws RejectedExecutionException if the hashing queue is full
      */
     public static boolean verifyPassword(String password, String storedHash) {
+        return await(verifyPasswordAsync(password, storedHash));
+    }
+
+    /**
+     * @throws RejectedExecutionException if the hashing queue is full
+     */
+    public static CompletableFuture<String> hashPasswordAsync(String password) {
+        return CompletableFuture.supplyAsync(() -> hash(password, ITERATIONS), pool());
+    }
+
+    /**
+     * @throws RejectedExecutionException if the hashing queue is full
+     */
+    public static CompletableFuture<Boolean> verifyPasswordAsync(String password, String storedHash) {
+        return CompletableFuture.supplyAsync(() -> verify(password, storedHash), pool());
+    }
+
+    /**
+     * Spends the same effort as checking a real password, for logins with an
+     * unknown phone number, so response time does not reveal which numbers
+     * are registered. Always completes with false.
+     */
+    public static CompletableFuture<Boolean> verifyDummyAsync(String password) {
+        return CompletableFuture.supplyAsync(() -> {
+            verify(password, dummyHash());
+            return false;
+        }, pool());
+    }
+
+    /**
+     * Whether a hash that just verified should be replaced: old format, or
+     * fewer iterations than currently configured.
+     */
+    public static boolean needsRehash(String storedHash) {
+        if (storedHash == null || !storedHash.startsWith("$" + PBKDF2_ID + "$")) {
+            return true;
+        }
+        String[] parts = storedHash.split("\\$");
         try {
-            if (storedHash == null || password == null) {
-                return false;
-            }
-            
-            String[] parts = storedHash.split(":");
-            if (parts.length != 2) {
-                return false; // Invalid format
-            }
-            
-            byte[] salt = Base64.getDecoder().decode(parts[0]);
-            byte[] storedHashBytes = Base64.getDecoder().decode(parts[1]);
-            
-            // Hash the provided password with the stored salt
-            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
-            digest.update(salt);
-            byte[] hashedPassword = digest.digest(password.getBytes());
-            
-            // Compare the hashes
-            return MessageDigest.isEqual(storedHashBytes, hashedPassword);
-        } catch (Exception e) {
-            return false; // In case of any error during verification
+            return parts.length != 5 || Integer.parseInt(parts[2]) < ITERATIONS;
+        } catch (NumberFormatException e) {
+            return true;
         }
     }
-    
+
     /**
      * Checks if the stored hash format is valid
      * @param storedHash The hash to validate
@@ -78,8 +126,132 @@ public class PasswordUtil {
         if (storedHash == null) {
             return false;
         }
-        
+        if (storedHash.startsWith("$")) {
+            String[] parts = storedHash.split("\\$");
+            return parts.length == 5 && PBKDF2_ID.equals(parts[1]) && !parts[3].isEmpty() && !parts[4].isEmpty();
+        }
         String[] parts = storedHash.split(":");
         return parts.length == 2 && !parts[0].isEmpty() && !parts[1].isEmpty();
     }
-}
\ No newline at end of file
+
+    public static int getIterations() {
+        return ITERATIONS;
+    }
+
+    // ================= ALGORITHMS (caller's thread) =================
+
+    /**
+     * Hashes on the calling thread with an explicit cost. Used by the pool and
+     * by the benchmark; request code goes through {@link #hashPassword}.
+     */
+    public static String hash(String password, int iterations) {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        byte[] derived = pbkdf2(password, salt, iterations);
+
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return "$" + PBKDF2_ID + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" +
+               encoder.encodeToString(derived);
+    }
+
+    /**
+     * Verifies on the calling thread.
+     */
+    public static boolean verify(String password, String storedHash) {
+        try {
+            if (storedHash == null || password == null) {
+                return false;
+            }
+            if (storedHash.startsWith("$")) {
+                String[] parts = storedHash.split("\\$");
+                if (parts.length != 5 || !PBKDF2_ID.equals(parts[1])) {
+                    return false; // Unknown format
+                }
+                int iterations = Integer.parseInt(parts[2]);
+                byte[] salt = Base64.getDecoder().decode(parts[3]);
+                byte[] expected = Base64.getDecoder().decode(parts[4]);
+                return MessageDigest.isEqual(expected, pbkdf2(password, salt, iterations));
+            }
+            return verifyLegacy(password, storedHash);
+        } catch (Exception e) {
+            return false; // In case of any error during verification
+        }
+    }
+
+    // salt:hash, one SHA-256 pass over salt + password
+    private static boolean verifyLegacy(String password, String storedHash) throws GeneralSecurityException {
+        String[] parts = storedHash.split(":");
+        if (parts.length != 2) {
+            return false; // Invalid format
+        }
+
+        byte[] salt = Base64.getDecoder().decode(parts[0]);
+        byte[] storedHashBytes = Base64.getDecoder().decode(parts[1]);
+
+        MessageDigest digest = MessageDigest.getInstance(LEGACY_ALGORITHM);
+        digest.update(salt);
+        byte[] hashedPassword = digest.digest(password.getBytes());
+
+        return MessageDigest.isEqual(storedHashBytes, hashedPassword);
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_LENGTH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(PBKDF2_ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 is not available", e);
+        }
+    }
+
+    private static String dummyHash() {
+        String current = dummyHash;
+        if (current == null) {
+            current = hash("dummy-password-" + RANDOM.nextLong(), ITERATIONS);
+            dummyHash = current;
+        }
+        return current;
+    }
+
+    // ================= POOL =================
+
+    private static synchronized ThreadPoolExecutor pool() {
+        if (pool == null) {
+            int threads = (int) EnvConfig.readLong("PASSWORD_HASH_THREADS", Runtime.getRuntime().availableProcessors());
+            int queue = (int) EnvConfig.readLong("PASSWORD_HASH_QUEUE", DEFAULT_QUEUE);
+            AtomicInteger counter = new AtomicInteger();
+            pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), r -> {
+                    Thread t = new Thread(r, "password-hash-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        }
+        return pool;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    /**
+     * Stops the hashing threads. Called when the web application stops.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+}
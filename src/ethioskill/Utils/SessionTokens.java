@@ -0,0 +1,316 @@
+package ethioskill.utils;
+
+import ethioskill.database.SessionRevocations;
+import ethioskill.models.User;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Who is logged in, kept either in the HttpSession (the default) or, with
+ * SESSION_MODE=stateless, in an HMAC-signed cookie any node can check on its
+ * own. Servlets go through {@link #currentUser} and work the same in both modes.
+ *
+ * A token is {@code <key id>.<payload>.<signature>}. The payload carries the
+ * session id, user id, role, status, login time, issue time and expiry; the
+ * signature is HMAC-SHA256 over the key id and payload. Keys come from
+ * SESSION_TOKEN_KEYS as {@code id:base64secret} pairs separated by commas. The
+ * first key signs and all of them verify, so a key is rotated by adding the
+ * new one second on every node, then moving it first, then dropping the old
+ * one after SESSION_TOKEN_TTL_MINUTES. Tokens are reissued once half their lifetime has
+ * passed, so an active user stays logged in like with a session. A reissued
+ * token keeps the original login time, which is what revoking a user checks.
+ *
+ * Logout and deleted users go on the revocation list in
+ * {@link SessionRevocations}, which is checked in memory.
+ */
+public class SessionTokens {
+
+    public static final String COOKIE_NAME = "ES_SESSION";
+    private static final String USER_ATTRIBUTE = "user";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_BYTES = 32;
+
+    private static final boolean STATELESS =
+        "stateless".equalsIgnoreCase(nullToEmpty(System.getenv("SESSION_MODE")).trim());
+    private static final long TTL_MILLIS =
+        TimeUnit.MINUTES.toMillis(EnvConfig.readLong("SESSION_TOKEN_TTL_MINUTES", 30));
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    // Key id -> secret; insertion order puts the signing key first
+    private static final Map<String, SecretKeySpec> keys = loadKeys();
+    private static final String signingKeyId = keys.keySet().iterator().next();
+
+    private SessionTokens() {}
+
+    public static boolean isStateless() {
+        return STATELESS;
+    }
+
+    // ================= CURRENT USER =================
+
+    /**
+     * The logged-in user for this request, or null. In stateless mode the
+     * returned User only carries id, role and status.
+     */
+    public static User currentUser(HttpServletRequest request) {
+        Object cached = request.getAttribute(USER_ATTRIBUTE);
+        if (cached instanceof User) {
+            return (User) cached;
+        }
+        User user;
+        if (STATELESS) {
+            Claims claims = verify(readCookie(request));
+            user = claims != null ? claims.toUser() : null;
+        } else {
+            HttpSession session = request.getSession(false);
+            user = session != null ? (User) session.getAttribute(USER_ATTRIBUTE) : null;
+        }
+        if (user != null) {
+            request.setAttribute(USER_ATTRIBUTE, user);
+        }
+        return user;
+    }
+
+    /**
+     * Like {@link #currentUser}, and reissues a stateless token that is past
+     * half its lifetime. Called by AuthFilter once per request.
+     */
+    public static User authenticate(HttpServletRequest request, HttpServletResponse response) {
+        if (!STATELESS) {
+            return currentUser(request);
+        }
+        Claims claims = verify(readCookie(request));
+        if (claims == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (claims.expiresAt - now < TTL_MILLIS / 2) {
+            writeCookie(request, response,
+                sign(claims.sessionId, claims.userId, claims.role, claims.status, claims.authenticatedAt, now));
+        }
+        User user = claims.toUser();
+        request.setAttribute(USER_ATTRIBUTE, user);
+        return user;
+    }
+
+    // ================= LOGIN / LOGOUT =================
+
+    /**
+     * Starts a logged-in session for the user in whichever mode is configured.
+     */
+    public static void login(HttpServletRequest request, HttpServletResponse response, User user) {
+        if (STATELESS) {
+            byte[] id = new byte[16];
+            RANDOM.nextBytes(id);
+            String sessionId = ENCODER.encodeToString(id);
+            long now = System.currentTimeMillis();
+            writeCookie(request, response, sign(sessionId, user.getId(), user.getRole(), user.getStatus(), now, now));
+        } else {
+            HttpSession session = request.getSession();
+            session.setAttribute(USER_ATTRIBUTE, user);
+        }
+        request.setAttribute(USER_ATTRIBUTE, user);
+    }
+
+    public static void logout(HttpServletRequest request, HttpServletResponse response) {
+        if (STATELESS) {
+            Claims claims = verify(readCookie(request));
+            if (claims != null) {
+                // Any token this session holds, refreshed or not, expires within one TTL from now
+                SessionRevocations.revokeSession(claims.sessionId, System.currentTimeMillis() + TTL_MILLIS);
+            }
+            Cookie cookie = new Cookie(COOKIE_NAME, "");
+            cookie.setPath(cookiePath(request));
+            cookie.setMaxAge(0);
+            response.addCookie(cookie);
+        }
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            session.invalidate();
+        }
+        request.removeAttribute(USER_ATTRIBUTE);
+    }
+
+    /**
+     * Ends every stateless session of a user, e.g. after the account is deleted.
+     * In session mode this does nothing.
+     */
+    public static void revokeUser(int userId) {
+        if (STATELESS) {
+            SessionRevocations.revokeUser(userId, System.currentTimeMillis() + TTL_MILLIS);
+        }
+    }
+
+    // ================= TOKENS =================
+
+    private static final class Claims {
+        final String sessionId;
+        final int userId;
+        final String role;
+        final String status;
+        final long authenticatedAt;
+        final long expiresAt;
+
+        Claims(String sessionId, int userId, String role, String status, long authenticatedAt, long expiresAt) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.role = role;
+            this.status = status;
+            this.authenticatedAt = authenticatedAt;
+            this.expiresAt = expiresAt;
+        }
+
+        User toUser() {
+            User user = new User();
+            user.setId(userId);
+            user.setRole(role);
+            user.setStatus(status);
+            return user;
+        }
+    }
+
+    private static String sign(String sessionId, int userId, String role, String status,
+                               long authenticatedAt, long issuedAt) {
+        String payload = sessionId + "|" + userId + "|" + nullToEmpty(role) + "|" + nullToEmpty(status) + "|" +
+                         authenticatedAt + "|" + issuedAt + "|" + (issuedAt + TTL_MILLIS);
+        String signed = signingKeyId + "." + ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return signed + "." + ENCODER.encodeToString(mac(keys.get(signingKeyId), signed));
+    }
+
+    /**
+     * @return the claims of a genuine, unexpired, unrevoked token, otherwise null
+     */
+    private static Claims verify(String token) {
+        if (token == null) return null;
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot <= firstDot) return null;
+
+        SecretKeySpec key = keys.get(token.substring(0, firstDot));
+        if (key == null) return null; // Signed with a retired or unknown key
+
+        try {
+            String signed = token.substring(0, lastDot);
+            byte[] signature = DECODER.decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(signature, mac(key, signed))) return null;
+
+            String payload = new String(DECODER.decode(token.substring(firstDot + 1, lastDot)), StandardCharsets.UTF_8);
+            String[] parts = payload.split("\\|", -1);
+            // Tokens signed before the login time was added have six parts; their issue time stands in for it
+            if (parts.length != 6 && parts.length != 7) return null;
+
+            Claims claims = new Claims(parts[0], Integer.parseInt(parts[1]), emptyToNull(parts[2]),
+                emptyToNull(parts[3]), Long.parseLong(parts[4]), Long.parseLong(parts[parts.length - 1]));
+            if (claims.expiresAt <= System.currentTimeMillis()) return null;
+            if (SessionRevocations.isRevoked(claims.sessionId, claims.userId, claims.authenticatedAt)) return null;
+            return claims;
+        } catch (IllegalArgumentException e) {
+            return null; // Bad Base64 or numbers
+        }
+    }
+
+    private static byte[] mac(SecretKeySpec key, String data) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    // ================= COOKIES =================
+
+    private static String readCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) return null;
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static void writeCookie(HttpServletRequest request, HttpServletResponse response, String token) {
+        Cookie cookie = new Cookie(COOKIE_NAME, token);
+        cookie.setPath(cookiePath(request));
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setAttribute("SameSite", "Lax");
+        cookie.setMaxAge((int) TimeUnit.MILLISECONDS.toSeconds(TTL_MILLIS));
+        response.addCookie(cookie);
+    }
+
+    private static String cookiePath(HttpServletRequest request) {
+        String contextPath = request.getContextPath();
+        return contextPath == null || contextPath.isEmpty() ? "/" : contextPath;
+    }
+
+    // ================= CONFIGURATION =================
+
+    private static Map<String, SecretKeySpec> loadKeys() {
+        Map<String, SecretKeySpec> loaded = new LinkedHashMap<>();
+        String value = System.getenv("SESSION_TOKEN_KEYS");
+        if (value != null) {
+            for (String entry : value.split(",")) {
+                entry = entry.trim();
+                int colon = entry.indexOf(':');
+                if (colon <= 0) {
+                    if (!entry.isEmpty()) System.err.println("Ignoring session key without an id");
+                    continue;
+                }
+                String id = entry.substring(0, colon).trim();
+                try {
+                    byte[] secret = Base64.getDecoder().decode(entry.substring(colon + 1).trim());
+                    if (secret.length < MIN_KEY_BYTES) {
+                        System.err.println("Ignoring session key " + id + ": shorter than " + MIN_KEY_BYTES + " bytes");
+                        continue;
+                    }
+                    if (id.contains(".")) {
+                        System.err.println("Ignoring session key " + id + ": id must not contain '.'");
+                        continue;
+                    }
+                    loaded.put(id, new SecretKeySpec(secret, ALGORITHM));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Ignoring session key " + id + ": not valid Base64");
+                }
+            }
+        }
+        if (loaded.isEmpty()) {
+            if (STATELESS) {
+                System.err.println("WARNING: SESSION_TOKEN_KEYS is not set; using a random key, so tokens " +
+                                   "only work on this node and until it restarts");
+            }
+            byte[] secret = new byte[MIN_KEY_BYTES];
+            RANDOM.nextBytes(secret);
+            loaded.put("local", new SecretKeySpec(secret, ALGORITHM));
+        }
+        return loaded;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+}
@@ -0,0 +1,289 @@
+package ethioskill.assets;
+
+import jakarta.servlet.ServletContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content-fingerprinted copies of the static files under /images, plus the
+ * HTML pages rewritten to point at them.
+ *
+ * Every image gets a second URL with a hash of its content in the name,
+ * e.g. /assets/images/logo.3f2a9c1b04de.png. A new version of the file gets a
+ * new URL, so those URLs can be cached forever. Pages are rewritten once when
+ * loaded so their image references use the fingerprinted URLs; the pages
+ * themselves keep their address and are revalidated with an ETag.
+ *
+ * Image bodies stay on disk and are memory-mapped, never copied onto the
+ * heap. Files are checked for changes at most every RESCAN_INTERVAL_MS on
+ * access, and only changed ones are hashed again.
+ */
+public class AssetCatalog {
+
+    public static final String PREFIX = "/assets";
+
+    private static final String[] ASSET_DIRS = { "/images" };
+    private static final String PAGE_DIR = "/pages";
+    private static final long RESCAN_INTERVAL_MS = 5000;
+    private static final int FINGERPRINT_LENGTH = 12; // hex digits of SHA-256
+
+    // src="images/x.png", href="../images/x.png", url('images/x.png'), with the quote or bracket around it
+    private static final Pattern IMAGE_REFERENCE =
+        Pattern.compile("([\"'(])(?:\\.\\./)?images/([A-Za-z0-9_.\\-]+)(?=[\"')])");
+    private static final Pattern FINGERPRINTED_NAME =
+        Pattern.compile("^(/.+)\\.[0-9a-f]{" + FINGERPRINT_LENGTH + "}(\\.[^./]+)?$");
+
+    public static final class Asset {
+        private final String path;
+        private final String fingerprintedPath;
+        private final Path file;
+        private final long length;
+        private final long lastModified;
+        private final String etag;
+        private final String contentType;
+        private final MappedByteBuffer mapped; // images
+        private final byte[] body;             // pages
+        private final byte[] gzipped;          // pages
+
+        private Asset(String path, String fingerprintedPath, Path file, long length, long lastModified,
+                      String etag, String contentType, MappedByteBuffer mapped, byte[] body, byte[] gzipped) {
+            this.path = path;
+            this.fingerprintedPath = fingerprintedPath;
+            this.file = file;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.etag = etag;
+            this.contentType = contentType;
+            this.mapped = mapped;
+            this.body = body;
+            this.gzipped = gzipped;
+        }
+
+        public String getPath() { return path; }
+        public String getFingerprintedPath() { return fingerprintedPath; }
+        public Path getFile() { return file; }
+        public long getLength() { return length; }
+        public long getLastModified() { return lastModified; }
+        public String getEtag() { return etag; }
+        public String getContentType() { return contentType; }
+
+        /** Rewritten HTML held in memory, as opposed to a file on disk. */
+        public boolean isPage() { return body != null; }
+
+        /** A read-only view of the mapped file; each caller gets its own position. */
+        public MappedByteBuffer getMapped() { return mapped.duplicate(); }
+
+        public byte[] getBody() { return body; }
+        public byte[] getGzipped() { return gzipped; }
+    }
+
+    private static final class Snapshot {
+        final Map<String, Asset> byPath;
+        final Map<String, Asset> byFingerprint;
+
+        Snapshot(Map<String, Asset> byPath, Map<String, Asset> byFingerprint) {
+            this.byPath = byPath;
+            this.byFingerprint = byFingerprint;
+        }
+    }
+
+    private final ServletContext context;
+    private final AtomicLong nextScan = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyMap(), Collections.emptyMap());
+
+    public AssetCatalog(ServletContext context) {
+        this.context = context;
+        rescan();
+    }
+
+    // ================= LOOKUPS =================
+
+    /**
+     * @param path e.g. /images/logo.png or /pages/login.html
+     */
+    public Asset byPath(String path) {
+        return current().byPath.get(path);
+    }
+
+    /**
+     * @param fingerprintedPath e.g. /assets/images/logo.3f2a9c1b04de.png
+     */
+    public Asset byFingerprint(String fingerprintedPath) {
+        return current().byFingerprint.get(fingerprintedPath);
+    }
+
+    /**
+     * The current version of a file requested under an outdated fingerprint,
+     * e.g. by a page loaded before a deploy. Must not be cached as immutable.
+     */
+    public Asset byStaleFingerprint(String fingerprintedPath) {
+        if (!fingerprintedPath.startsWith(PREFIX + "/")) return null;
+        Matcher m = FINGERPRINTED_NAME.matcher(fingerprintedPath.substring(PREFIX.length()));
+        if (!m.matches()) return null;
+        Asset asset = current().byPath.get(m.group(1) + (m.group(2) != null ? m.group(2) : ""));
+        return asset != null && !asset.isPage() ? asset : null;
+    }
+
+    private Snapshot current() {
+        long now = System.currentTimeMillis();
+        long due = nextScan.get();
+        // One request does the (cheap, stat-only) check; the others keep using the old snapshot
+        if (now >= due && nextScan.compareAndSet(due, now + RESCAN_INTERVAL_MS)) {
+            rescan();
+        }
+        return snapshot;
+    }
+
+    // ================= LOADING =================
+
+    private synchronized void rescan() {
+        Snapshot previous = snapshot;
+        Map<String, Asset> byPath = new HashMap<>();
+        Map<String, Asset> byFingerprint = new HashMap<>();
+        boolean imagesChanged = false;
+
+        for (String dir : ASSET_DIRS) {
+            for (Map.Entry<String, Path> entry : listFiles(dir).entrySet()) {
+                String path = entry.getKey();
+                Asset asset = previous.byPath.get(path);
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(entry.getValue(), BasicFileAttributes.class);
+                    if (asset == null || asset.length != attrs.size() ||
+                            asset.lastModified != attrs.lastModifiedTime().toMillis()) {
+                        asset = loadFile(path, entry.getValue(), attrs);
+                        imagesChanged = true;
+                    }
+                } catch (IOException e) {
+                    System.err.println("Could not load asset " + path + ": " + e.getMessage());
+                    continue;
+                }
+                byPath.put(path, asset);
+                byFingerprint.put(asset.fingerprintedPath, asset);
+            }
+        }
+        for (String path : previous.byPath.keySet()) {
+            if (!path.startsWith(PAGE_DIR + "/") && !byPath.containsKey(path)) {
+                imagesChanged = true; // Removed
+            }
+        }
+
+        for (Map.Entry<String, Path> entry : listFiles(PAGE_DIR).entrySet()) {
+            String path = entry.getKey();
+            if (!path.endsWith(".html")) continue;
+            Asset page = previous.byPath.get(path);
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(entry.getValue(), BasicFileAttributes.class);
+                if (page == null || imagesChanged || page.lastModified != attrs.lastModifiedTime().toMillis()) {
+                    page = loadPage(path, entry.getValue(), attrs, byPath);
+                }
+            } catch (IOException e) {
+                System.err.println("Could not load page " + path + ": " + e.getMessage());
+                continue;
+            }
+            byPath.put(path, page);
+        }
+
+        snapshot = new Snapshot(byPath, byFingerprint);
+    }
+
+    private Map<String, Path> listFiles(String dir) {
+        Map<String, Path> files = new HashMap<>();
+        String realPath = context.getRealPath(dir);
+        if (realPath == null) return files;
+        Path root = Paths.get(realPath);
+        if (!Files.isDirectory(root)) return files;
+
+        try (Stream<Path> walk = Files.walk(root)) {
+            walk.filter(Files::isRegularFile).forEach(file ->
+                files.put(dir + "/" + root.relativize(file).toString().replace('\\', '/'), file));
+        } catch (IOException e) {
+            System.err.println("Could not list " + dir + ": " + e.getMessage());
+        }
+        return files;
+    }
+
+    private Asset loadFile(String path, Path file, BasicFileAttributes attrs) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        MessageDigest digest = sha256();
+        digest.update(mapped.duplicate());
+        String hash = hex(digest.digest()).substring(0, FINGERPRINT_LENGTH);
+
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        String fingerprinted = dot > slash
+            ? PREFIX + path.substring(0, dot) + "." + hash + path.substring(dot)
+            : PREFIX + path + "." + hash;
+
+        String contentType = context.getMimeType(path);
+        return new Asset(path, fingerprinted, file, mapped.capacity(), attrs.lastModifiedTime().toMillis(),
+            "\"" + hash + "\"", contentType != null ? contentType : "application/octet-stream",
+            mapped, null, null);
+    }
+
+    private Asset loadPage(String path, Path file, BasicFileAttributes attrs, Map<String, Asset> images)
+            throws IOException {
+        String html = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        String contextPath = context.getContextPath();
+
+        Matcher m = IMAGE_REFERENCE.matcher(html);
+        StringBuilder rewritten = new StringBuilder(html.length() + 256);
+        while (m.find()) {
+            Asset image = images.get("/images/" + m.group(2));
+            String target = image != null ? image.fingerprintedPath : "/images/" + m.group(2);
+            m.appendReplacement(rewritten, Matcher.quoteReplacement(m.group(1) + contextPath + target));
+        }
+        m.appendTail(rewritten);
+
+        byte[] body = rewritten.toString().getBytes(StandardCharsets.UTF_8);
+        String hash = hex(sha256().digest(body)).substring(0, FINGERPRINT_LENGTH);
+        // Weak: the gzipped and plain bodies share the tag
+        return new Asset(path, null, file, body.length, attrs.lastModifiedTime().toMillis(),
+            "W/\"" + hash + "\"", "text/html;charset=UTF-8", null, body, gzip(body));
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
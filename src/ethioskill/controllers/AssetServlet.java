@@ -0,0 +1,124 @@
+package ethioskill.controllers;
+
+import ethioskill.assets.AssetCatalog;
+import ethioskill.assets.AssetCatalog.Asset;
+import ethioskill.filters.CompressionFilter;
+import ethioskill.utils.ConditionalGet;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.*;
+import jakarta.servlet.annotation.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Serves images and pages with cache headers.
+ *
+ * /assets/... holds content-fingerprinted images, cached by browsers for a
+ * year without asking again. The plain /images/... and /pages/... URLs are
+ * served with an ETag and must be revalidated, which costs a 304 when nothing
+ * changed. Pages come out of memory, already rewritten to reference the
+ * fingerprinted images and already gzipped.
+ *
+ * Image bodies are handed to Tomcat's sendfile when the connector supports
+ * it, so the kernel copies the file straight to the socket. Otherwise the
+ * memory-mapped file is written out through a channel.
+ */
+@WebServlet(urlPatterns = { "/assets/*", "/images/*", "/pages/*" }, loadOnStartup = 1)
+public class AssetServlet extends HttpServlet {
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "no-cache";
+
+    // Below this setting up sendfile costs more than copying the mapped bytes
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    private AssetCatalog catalog;
+
+    @Override
+    public void init() throws ServletException {
+        catalog = new AssetCatalog(getServletContext());
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        String servletPath = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        if (pathInfo == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        Asset asset;
+        String cacheControl = REVALIDATE;
+        if (AssetCatalog.PREFIX.equals(servletPath)) {
+            asset = catalog.byFingerprint(servletPath + pathInfo);
+            if (asset != null) {
+                cacheControl = IMMUTABLE;
+            } else {
+                // A page from before the file changed: answer, but don't let it be cached
+                asset = catalog.byStaleFingerprint(servletPath + pathInfo);
+            }
+        } else {
+            asset = catalog.byPath(servletPath + pathInfo);
+        }
+        if (asset == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setContentType(asset.getContentType());
+        if (asset.isPage()) {
+            response.addHeader("Vary", "Accept-Encoding");
+        }
+        if (ConditionalGet.notModified(request, response, asset.getEtag(), asset.getLastModified(), cacheControl)) {
+            return;
+        }
+
+        boolean head = "HEAD".equals(request.getMethod());
+        if (asset.isPage()) {
+            sendPage(request, response, asset, head);
+        } else {
+            sendFile(request, response, asset, head);
+        }
+    }
+
+    private void sendPage(HttpServletRequest request, HttpServletResponse response, Asset page, boolean head)
+            throws IOException {
+        byte[] body = page.getBody();
+        if (CompressionFilter.accepts(request.getHeader("Accept-Encoding"), "gzip")) {
+            body = page.getGzipped();
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        response.setContentLength(body.length);
+        if (!head) {
+            response.getOutputStream().write(body);
+        }
+    }
+
+    private void sendFile(HttpServletRequest request, HttpServletResponse response, Asset asset, boolean head)
+            throws IOException {
+        response.setContentLengthLong(asset.getLength());
+        if (head) {
+            return;
+        }
+
+        if (asset.getLength() >= SENDFILE_MIN_SIZE &&
+                Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", asset.getFile().toAbsolutePath().toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+            request.setAttribute("org.apache.tomcat.sendfile.end", asset.getLength());
+            return;
+        }
+
+        ByteBuffer buffer = asset.getMapped();
+        WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
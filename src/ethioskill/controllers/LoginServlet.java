@@ -3,9 +3,10 @@ package ethioskill.controllers;
 import ethioskill.models.User;
 import ethioskill.database.DBConnection;
 import ethioskill.utils.AlertUtil;
+import ethioskill.utils.LoginThrottle;
 import ethioskill.utils.Validator;
 import ethioskill.utils.PasswordUtil;
-import com.google.gson.Gson;
+import ethioskill.utils.SessionTokens;
 
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
@@ -14,10 +15,42 @@ import java.io.IOException;
 import java.sql.*;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-@WebServlet("/LoginServlet")
+@WebServlet(urlPatterns = "/LoginServlet", asyncSupported = true)
 public class LoginServlet extends HttpServlet {
     
+    private static final long LOGIN_TIMEOUT_MS = 30000;
+    private static final int REHASH_QUEUE = 100;
+    
+    // Writes upgraded hashes; a full queue drops the upgrade until the next login
+    private ThreadPoolExecutor rehashWriter;
+    
+    @Override
+    public void init() throws ServletException {
+        rehashWriter = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(REHASH_QUEUE), r -> {
+                Thread t = new Thread(r, "password-rehash-writer");
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+    
+    @Override
+    public void destroy() {
+        // Let queued upgrades reach the table while the pool is still open
+        rehashWriter.shutdown();
+        try {
+            rehashWriter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) 
             throws ServletException, IOException {
@@ -52,6 +85,17 @@ public class LoginServlet extends HttpServlet {
         // Format phone for database comparison
         phone = Validator.formatPhone(phone);
         
+        // Refuse over-limit attempts before touching the database or the hashing pool
+        long retryAfter = LoginThrottle.tryAcquire(phone, request.getRemoteAddr());
+        if (retryAfter > 0) {
+            response.setStatus(429); // Too Many Requests
+            response.setHeader("Retry-After", String.valueOf(retryAfter));
+            AlertUtil.sendError(response, "Too many login attempts, please try again later");
+            return;
+        }
+        
+        User user = null;
+        String storedHash = null;
         try (Connection conn = DBConnection.getConnection()) {
             String sql = "SELECT * FROM users WHERE phone_number = ? AND role = ?";
             PreparedStatement stmt = conn.prepareStatement(sql);
@@ -61,50 +105,127 @@ public class LoginServlet extends HttpServlet {
             ResultSet rs = stmt.executeQuery();
             
             if (rs.next()) {
-                // Verify the password against the stored hash
-                String storedHash = rs.getString("password");
-                if (!PasswordUtil.verifyPassword(password, storedHash)) {
-                    AlertUtil.sendError(response, "Invalid credentials or role mismatch");
-                    return;
-                }
+                storedHash = rs.getString("password");
                 // Create user object
-                User user = new User();
+                user = new User();
                 user.setId(rs.getInt("user_id"));
                 user.setFullName(rs.getString("full_name"));
                 user.setPhone(rs.getString("phone_number"));
                 user.setRole(rs.getString("role"));
                 user.setStatus(rs.getString("status"));
-                
-                // Create session
-                HttpSession session = request.getSession();
-                session.setAttribute("user", user);
-                
-                // Prepare response
-                Map<String, Object> responseData = new HashMap<>();
-                responseData.put("success", true);
-                responseData.put("user", user);
-                
-                // Check if provider needs to complete registration
-                if ("Provider".equals(role)) {
-                    boolean hasDetails = checkProviderDetails(conn, user.getId());
-                    responseData.put("needsRegistration", !hasDetails);
-                }
-                
-                // Send response
-                response.setContentType("application/json");
-                response.setCharacterEncoding("UTF-8");
-                response.getWriter().write(new Gson().toJson(responseData));
-                
-            } else {
-                AlertUtil.sendError(response, "Invalid credentials or role mismatch");
             }
             
         } catch (SQLException e) {
             e.printStackTrace();
             AlertUtil.sendError(response, "Database error occurred");
+            return;
+        }
+        
+        // Verification runs on the hashing pool; this request thread goes back to Tomcat
+        CompletableFuture<Boolean> verified;
+        try {
+            verified = user != null
+                ? PasswordUtil.verifyPasswordAsync(password, storedHash)
+                : PasswordUtil.verifyDummyAsync(password);
+        } catch (RejectedExecutionException e) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "2");
+            AlertUtil.sendError(response, "Server is busy, please try again");
+            return;
+        }
+        
+        AsyncContext async = request.startAsync();
+        async.setTimeout(LOGIN_TIMEOUT_MS);
+        User found = user;
+        String hash = storedHash;
+        verified.whenComplete((ok, error) -> {
+            try {
+                async.start(() -> finishLogin(async, ok, error, found, password, hash));
+            } catch (IllegalStateException e) {
+                // The request already timed out while waiting for a hashing thread
+                System.err.println("Login request expired before verification finished");
+            }
+        });
+    }
+    
+    private void finishLogin(AsyncContext async, Boolean ok, Throwable error, User user,
+            String password, String storedHash) {
+        try {
+            HttpServletResponse response = (HttpServletResponse) async.getResponse();
+            if (error != null) {
+                error.printStackTrace();
+                AlertUtil.sendError(response, "Login failed, please try again");
+            } else if (!ok) {
+                AlertUtil.sendError(response, "Invalid credentials or role mismatch");
+            } else {
+                completeLogin((HttpServletRequest) async.getRequest(), response, user, password, storedHash);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not send login response: " + e.getMessage());
+        } finally {
+            async.complete();
         }
     }
     
+    private void completeLogin(HttpServletRequest request, HttpServletResponse response, User user,
+            String password, String storedHash) throws IOException {
+        
+        LoginThrottle.succeeded(user.getPhone());
+        
+        if (PasswordUtil.needsRehash(storedHash)) {
+            rehash(user.getId(), password, storedHash);
+        }
+        
+        // Create session (HttpSession or signed token, depending on SESSION_MODE)
+        SessionTokens.login(request, response, user);
+        
+        // Prepare response
+        Map<String, Object> responseData = new HashMap<>();
+        responseData.put("success", true);
+        responseData.put("user", user);
+        
+        // Check if provider needs to complete registration
+        if ("Provider".equals(user.getRole())) {
+            try (Connection conn = DBConnection.getConnection()) {
+                boolean hasDetails = checkProviderDetails(conn, user.getId());
+                responseData.put("needsRegistration", !hasDetails);
+            } catch (SQLException e) {
+                e.printStackTrace();
+                AlertUtil.sendError(response, "Database error occurred");
+                return;
+            }
+        }
+        
+        // Send response
+        AlertUtil.sendJson(response, responseData);
+    }
+    
+    /**
+     * Upgrades an old-format or lower-cost hash in the background while the
+     * plain password is at hand. Only replaces the exact hash that was
+     * verified, so a password change made meanwhile is never overwritten.
+     */
+    private void rehash(int userId, String password, String oldHash) {
+        CompletableFuture<String> upgraded;
+        try {
+            upgraded = PasswordUtil.hashPasswordAsync(password);
+        } catch (RejectedExecutionException e) {
+            return; // Busy; try again on the next login
+        }
+        upgraded.thenAcceptAsync(newHash -> {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(
+                     "UPDATE users SET password = ? WHERE user_id = ? AND password = ?")) {
+                stmt.setString(1, newHash);
+                stmt.setInt(2, userId);
+                stmt.setString(3, oldHash);
+                stmt.executeUpdate();
+            } catch (SQLException e) {
+                System.err.println("Could not upgrade password hash for user " + userId + ": " + e.getMessage());
+            }
+        }, rehashWriter);
+    }
+    
     private boolean checkProviderDetails(Connection conn, int userId) throws SQLException {
         String sql = "SELECT * FROM provider_details WHERE provider_id = ?";
         PreparedStatement stmt = conn.prepareStatement(sql);
@@ -117,11 +238,8 @@ public class LoginServlet extends HttpServlet {
     protected void doGet(HttpServletRequest request, HttpServletResponse response) 
             throws ServletException, IOException {
         
-        // Check session
-        HttpSession session = request.getSession(false);
-        if (session != null) {
-            session.invalidate();
-        }
+        // End the session; a stateless token is also put on the revocation list
+        SessionTokens.logout(request, response);
         
         response.sendRedirect(request.getContextPath() + "/pages/login.html");
     }
@@ -0,0 +1,67 @@
+package ethioskill.controllers;
+
+import ethioskill.database.NotificationHub;
+import ethioskill.database.NotificationInbox;
+import ethioskill.utils.AlertUtil;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Notification actions shared by the Admin, Provider and Seeker servlets,
+ * which all answer them the same way for the logged-in user.
+ */
+final class NotificationActions {
+
+    private NotificationActions() {}
+
+    static void getNotifications(HttpServletRequest request, HttpServletResponse response, int userId)
+            throws IOException {
+        try {
+            String limitParam = request.getParameter("limit");
+            String cursorParam = request.getParameter("cursor");
+            int limit = limitParam != null ? Integer.parseInt(limitParam) : NotificationInbox.DEFAULT_LIMIT;
+            long cursor = cursorParam != null ? Long.parseLong(cursorParam) : 0L;
+            boolean markRead = !"false".equals(request.getParameter("markRead"));
+
+            AlertUtil.sendSuccess(response, NotificationInbox.fetchUnread(userId, cursor, limit, markRead));
+        } catch (NumberFormatException e) {
+            AlertUtil.sendError(response, "Invalid limit or cursor");
+        } catch (SQLException e) {
+            e.printStackTrace();
+            AlertUtil.sendError(response, "Database error");
+        }
+    }
+
+    static void getUnreadCount(HttpServletResponse response, int userId) throws IOException {
+        try {
+            Map<String, Object> result = new HashMap<>();
+            result.put("unread", NotificationHub.unreadCount(userId));
+            AlertUtil.sendSuccess(response, result);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            AlertUtil.sendError(response, "Database error");
+        }
+    }
+
+    static void getRecentNotifications(HttpServletRequest request, HttpServletResponse response, int userId)
+            throws IOException {
+        try {
+            String limitParam = request.getParameter("limit");
+            int limit = limitParam != null ? Integer.parseInt(limitParam) : NotificationHub.BUFFER_SIZE;
+            if (limit <= 0 || limit > NotificationHub.BUFFER_SIZE) {
+                limit = NotificationHub.BUFFER_SIZE;
+            }
+            AlertUtil.sendSuccess(response, NotificationHub.recent(userId, limit));
+        } catch (NumberFormatException e) {
+            AlertUtil.sendError(response, "Invalid limit");
+        } catch (SQLException e) {
+            e.printStackTrace();
+            AlertUtil.sendError(response, "Database error");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ethioskill.controllers;
+
+import ethioskill.models.User;
+import ethioskill.push.NotificationStreams;
+import ethioskill.utils.AlertUtil;
+import ethioskill.utils.SessionTokens;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.*;
+import jakarta.servlet.annotation.*;
+import java.io.IOException;
+
+/**
+ * Server-Sent Events endpoint the dashboards subscribe to for notifications.
+ * The request is suspended and handed to {@link NotificationStreams}, so the
+ * container thread is released straight away.
+ */
+@WebServlet(urlPatterns = "/NotificationStreamServlet", asyncSupported = true)
+public class NotificationStreamServlet extends HttpServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        User user = SessionTokens.currentUser(request);
+        if (user == null) {
+            AlertUtil.sendError(response, "Authentication required");
+            return;
+        }
+
+        // EventSource sends the header on reconnect; a reloaded page passes it as a parameter
+        long lastEventId;
+        try {
+            lastEventId = parseEventId(request.getHeader("Last-Event-ID"));
+            if (lastEventId == 0) {
+                lastEventId = parseEventId(request.getParameter("lastEventId"));
+            }
+        } catch (NumberFormatException e) {
+            AlertUtil.sendError(response, "Invalid last event id");
+            return;
+        }
+
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        // Stops nginx-style proxies from buffering the stream
+        response.setHeader("X-Accel-Buffering", "no");
+
+        AsyncContext context = request.startAsync();
+        try {
+            NotificationStreams.open(user.getId(), context, lastEventId);
+        } catch (IOException e) {
+            // Client already gone
+            context.complete();
+        }
+    }
+
+    private static long parseEventId(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return 0L;
+        }
+        return Math.max(0L, Long.parseLong(value.trim()));
+    }
+}
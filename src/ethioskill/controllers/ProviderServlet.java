@@ -4,9 +4,16 @@ import ethioskill.models.User;
 import ethioskill.models.Booking;
 import ethioskill.database.DBConnection;
 import ethioskill.database.DatabaseHelper;
+import ethioskill.database.DataVersions;
+import ethioskill.database.DataVersions.Domain;
+import ethioskill.database.StatsCounters;
+import ethioskill.search.BookingCalendar;
+import ethioskill.search.ProviderIndex;
+import ethioskill.search.UserSearchIndex;
 import ethioskill.utils.AlertUtil;
+import ethioskill.utils.ConditionalGet;
+import ethioskill.utils.SessionTokens;
 import ethioskill.utils.Validator;
-import com.google.gson.Gson;
 
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
@@ -29,13 +36,12 @@ public class ProviderServlet extends HttpServlet {
     protected void doGet(HttpServletRequest request, HttpServletResponse response) 
             throws ServletException, IOException {
         
-        HttpSession session = request.getSession(false);
-        if (session == null || session.getAttribute("user") == null) {
+        User user = SessionTokens.currentUser(request);
+        if (user == null) {
             AlertUtil.sendError(response, "Authentication required");
             return;
         }
         
-        User user = (User) session.getAttribute("user");
         if (!"Provider".equals(user.getRole())) {
             AlertUtil.sendError(response, "Access denied");
             return;
@@ -46,20 +52,37 @@ public class ProviderServlet extends HttpServlet {
         
         switch (action) {
             case "getSkills":
-                getSkills(response);
+                if (!ConditionalGet.notModified(request, response, null, Domain.SKILLS)) {
+                    getSkills(response);
+                }
                 break;
             case "getCities":
-                getCities(response);
+                if (!ConditionalGet.notModified(request, response, null, Domain.CITIES)) {
+                    getCities(response);
+                }
                 break;
             case "getProviderDetails":
-                getProviderDetails(user.getId(), response);
+                if (!ConditionalGet.notModified(request, response, "u" + user.getId(), Domain.PROVIDERS)) {
+                    getProviderDetails(user.getId(), response);
+                }
                 break;
             case "getBookings":
-                getBookings(user.getId(), response);
+                if (!ConditionalGet.notModified(request, response, "u" + user.getId(), Domain.BOOKINGS)) {
+                    getBookings(user.getId(), response);
+                }
                 break;
             case "checkNotifications":
                 checkNotifications(user.getId(), response);
                 break;
+            case "getNotifications":
+                NotificationActions.getNotifications(request, response, user.getId());
+                break;
+            case "getUnreadCount":
+                NotificationActions.getUnreadCount(response, user.getId());
+                break;
+            case "getRecentNotifications":
+                NotificationActions.getRecentNotifications(request, response, user.getId());
+                break;
             default:
                 AlertUtil.sendError(response, "Invalid action");
         }
@@ -69,13 +92,12 @@ public class ProviderServlet extends HttpServlet {
     protected void doPost(HttpServletRequest request, HttpServletResponse response) 
             throws ServletException, IOException {
         
-        HttpSession session = request.getSession(false);
-        if (session == null || session.getAttribute("user") == null) {
+        User user = SessionTokens.currentUser(request);
+        if (user == null) {
             AlertUtil.sendError(response, "Authentication required");
             return;
         }
         
-        User user = (User) session.getAttribute("user");
         if (!"Provider".equals(user.getRole())) {
             AlertUtil.sendError(response, "Access denied");
             return;
@@ -107,6 +129,9 @@ public class ProviderServlet extends HttpServlet {
             case "acceptBooking":
                 acceptBooking(request, response, user.getId());
                 break;
+            case "cancelBooking":
+                cancelBooking(request, response, user.getId());
+                break;
             case "updateService":
                 updateService(request, response, user.getId());
                 break;
@@ -154,31 +179,30 @@ public class ProviderServlet extends HttpServlet {
     }
     
     private void getBookings(int providerId, HttpServletResponse response) throws IOException {
-        List<Booking> bookings = new ArrayList<>();
-        
         try (Connection conn = DBConnection.getConnection()) {
             String sql = "SELECT * FROM bookings WHERE provider_id = ? ORDER BY service_date DESC";
-            PreparedStatement stmt = conn.prepareStatement(sql);
+            PreparedStatement stmt = conn.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // Row-by-row streaming from Connector/J (see AlertUtil.streamResultSet)
+            stmt.setFetchSize(Integer.MIN_VALUE);
             stmt.setInt(1, providerId);
             ResultSet rs = stmt.executeQuery();
             
-            while (rs.next()) {
+            AlertUtil.streamResultSet(response, rs, row -> {
                 Booking booking = new Booking();
-                booking.setId(rs.getInt("booking_id"));
-                booking.setSeekerName(rs.getString("seeker_name"));
-                booking.setPhone(rs.getString("seeker_phone"));
-                booking.setAddress(rs.getString("service_address"));
-                booking.setDate(rs.getDate("service_date"));
-                booking.setDetails(rs.getString("service_details"));
-                booking.setStatus(rs.getString("status"));
-                bookings.add(booking);
-            }
+                booking.setId(row.getInt("booking_id"));
+                booking.setSeekerName(row.getString("seeker_name"));
+                booking.setPhone(row.getString("seeker_phone"));
+                booking.setAddress(row.getString("service_address"));
+                booking.setDate(row.getDate("service_date"));
+                booking.setDetails(row.getString("service_details"));
+                booking.setStatus(row.getString("status"));
+                return booking;
+            });
         } catch (SQLException e) {
             e.printStackTrace();
             AlertUtil.sendError(response, "Database error");
-            return;
         }
-        AlertUtil.sendSuccess(response, bookings);
     }
     
     private void checkNotifications(int userId, HttpServletResponse response) throws IOException {
@@ -242,7 +266,8 @@ public class ProviderServlet extends HttpServlet {
             int rows = insertStmt.executeUpdate();
             
             if (rows > 0) {
-                if (!phone.equals(request.getSession().getAttribute("userPhone"))) {
+                User user = SessionTokens.currentUser(request);
+                if (!phone.equals(user.getPhone()) || !fullName.equals(user.getFullName())) {
                     String updateSql = "UPDATE users SET phone_number = ?, full_name = ? WHERE user_id = ?";
                     PreparedStatement updateStmt = conn.prepareStatement(updateSql);
                     updateStmt.setString(1, phone);
@@ -250,7 +275,6 @@ public class ProviderServlet extends HttpServlet {
                     updateStmt.setInt(3, userId);
                     updateStmt.executeUpdate();
                     
-                    User user = (User) request.getSession().getAttribute("user");
                     user.setPhone(phone);
                     user.setFullName(fullName);
                 }
@@ -271,14 +295,17 @@ public class ProviderServlet extends HttpServlet {
                 responseData.put("status", status);
                 responseData.put("photoPath", photoPath);
                 
+                ProviderIndex.getInstance().refreshProvider(userId);
+                DataVersions.bump(Domain.PROVIDERS, Domain.USERS);
+                StatsCounters.providerChanged(userId);
+                UserSearchIndex.getInstance().refreshUser(userId);
+                
                 if (!autoVerify) {
                     String adminMsg = String.format("New provider registration pending: %s (%s)", fullName, skill);
                     notifyAdmins(conn, adminMsg);
                 }
                 
-                response.setContentType("application/json");
-                response.setCharacterEncoding("UTF-8");
-                response.getWriter().write(new Gson().toJson(responseData));
+                AlertUtil.sendJson(response, responseData);
             } else {
                 AlertUtil.sendError(response, "Registration failed");
             }
@@ -349,6 +376,10 @@ public class ProviderServlet extends HttpServlet {
                 providerStmt.setObject(i + 1, params.get(i));
             }
             providerStmt.executeUpdate();
+            ProviderIndex.getInstance().refreshProvider(user.getId());
+            DataVersions.bump(Domain.PROVIDERS, Domain.USERS);
+            StatsCounters.providerChanged(user.getId());
+            UserSearchIndex.getInstance().refreshUser(user.getId());
             
             user.setFullName(fullName);
             user.setPhone(phone);
@@ -365,9 +396,7 @@ public class ProviderServlet extends HttpServlet {
                 responseData.put("photoPath", relativeWebPath);
             }
             
-            response.setContentType("application/json");
-            response.setCharacterEncoding("UTF-8");
-            response.getWriter().write(new Gson().toJson(responseData));
+            AlertUtil.sendJson(response, responseData);
             
         } catch (SQLException e) {
             e.printStackTrace();
@@ -413,6 +442,8 @@ public class ProviderServlet extends HttpServlet {
             stmt.setString(1, status);
             stmt.setInt(2, providerId);
             stmt.executeUpdate();
+            ProviderIndex.getInstance().refreshProvider(providerId);
+            DataVersions.bump(Domain.PROVIDERS);
             AlertUtil.sendSuccess(response, "Status updated successfully");
         } catch (SQLException e) {
             e.printStackTrace();
@@ -430,6 +461,12 @@ public class ProviderServlet extends HttpServlet {
                 updateStmt.setInt(2, providerId);
                 
                 if (updateStmt.executeUpdate() > 0) {
+                    // Normally already marked when the booking was made; this covers a re-accepted one
+                    java.sql.Date serviceDate = getServiceDate(conn, bookingId);
+                    if (serviceDate != null) {
+                        BookingCalendar.getInstance().book(providerId, serviceDate.toLocalDate());
+                    }
+                    DataVersions.bump(Domain.BOOKINGS);
                     notifySeeker(conn, bookingId, providerId);
                     AlertUtil.sendSuccess(response, "Booking accepted successfully");
                 } else {
@@ -444,6 +481,46 @@ public class ProviderServlet extends HttpServlet {
         }
     }
 
+    private void cancelBooking(HttpServletRequest request, HttpServletResponse response, int providerId) throws IOException {
+        try {
+            int bookingId = Integer.parseInt(request.getParameter("bookingId"));
+            try (Connection conn = DBConnection.getConnection()) {
+                String updateSql = "UPDATE bookings SET status = 'Cancelled' " +
+                                   "WHERE booking_id = ? AND provider_id = ? AND status IN ('Pending', 'Accepted')";
+                PreparedStatement updateStmt = conn.prepareStatement(updateSql);
+                updateStmt.setInt(1, bookingId);
+                updateStmt.setInt(2, providerId);
+                
+                if (updateStmt.executeUpdate() > 0) {
+                    java.sql.Date serviceDate = getServiceDate(conn, bookingId);
+                    if (serviceDate != null) {
+                        BookingCalendar.getInstance().release(providerId, serviceDate.toLocalDate());
+                    }
+                    DataVersions.bump(Domain.BOOKINGS);
+                    notifySeekerCancelled(conn, bookingId, providerId, serviceDate);
+                    AlertUtil.sendSuccess(response, "Booking cancelled");
+                } else {
+                    AlertUtil.sendError(response, "Failed to cancel booking");
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+                AlertUtil.sendError(response, "Database error");
+            }
+        } catch (NumberFormatException e) {
+            AlertUtil.sendError(response, "Invalid booking ID");
+        }
+    }
+
+    private java.sql.Date getServiceDate(Connection conn, int bookingId) throws SQLException {
+        String sql = "SELECT service_date FROM bookings WHERE booking_id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, bookingId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getDate("service_date") : null;
+            }
+        }
+    }
+
     private void updateService(HttpServletRequest request, HttpServletResponse response, int providerId) throws IOException {
         String skill = request.getParameter("skill");
         String paymentType = request.getParameter("paymentType");
@@ -463,6 +540,9 @@ public class ProviderServlet extends HttpServlet {
             stmt.setInt(4, providerId);
             
             if (stmt.executeUpdate() > 0) {
+                ProviderIndex.getInstance().refreshProvider(providerId);
+                DataVersions.bump(Domain.PROVIDERS);
+                StatsCounters.providerChanged(providerId);
                 AlertUtil.sendSuccess(response, "Service updated successfully");
             } else {
                 AlertUtil.sendError(response, "Failed to update service");
@@ -496,6 +576,22 @@ public class ProviderServlet extends HttpServlet {
         }
     }
 
+    private void notifySeekerCancelled(Connection conn, int bookingId, int providerId, java.sql.Date serviceDate) 
+            throws SQLException {
+        String sql = "SELECT seeker_id FROM bookings WHERE booking_id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, bookingId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    String providerName = getProviderName(conn, providerId);
+                    String message = "Your booking with " + providerName +
+                        (serviceDate != null ? " for " + serviceDate : "") + " has been CANCELLED.";
+                    DatabaseHelper.sendNotification(rs.getInt("seeker_id"), message);
+                }
+            }
+        }
+    }
+
     private String getProviderName(Connection conn, int providerId) throws SQLException {
         String sql = "SELECT full_name FROM users WHERE user_id = ?";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -1,10 +1,20 @@
 package ethioskill.controllers;
 
+import ethioskill.models.Booking;
 import ethioskill.models.User;
+import ethioskill.database.BookingStore;
 import ethioskill.database.DBConnection;
 import ethioskill.database.DatabaseHelper;
+import ethioskill.database.DataVersions;
+import ethioskill.database.DataVersions.Domain;
+import ethioskill.database.StatsCounters;
+import ethioskill.search.BookingCalendar;
+import ethioskill.search.PageCursor;
+import ethioskill.search.ProviderIndex;
+import ethioskill.search.ResultPage;
 import ethioskill.utils.AlertUtil;
-import com.google.gson.Gson;
+import ethioskill.utils.ConditionalGet;
+import ethioskill.utils.SessionTokens;
 
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
@@ -12,22 +22,26 @@ import jakarta.servlet.annotation.*;
 import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 @WebServlet("/SeekerServlet")
 public class SeekerServlet extends HttpServlet {
     
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) 
             throws ServletException, IOException {
         
-        HttpSession session = request.getSession(false);
-        if (session == null || session.getAttribute("user") == null) {
+        User user = SessionTokens.currentUser(request);
+        if (user == null) {
             AlertUtil.sendError(response, "Authentication required");
             return;
         }
         
-        User user = (User) session.getAttribute("user");
         if (!"Seeker".equals(user.getRole())) {
             AlertUtil.sendError(response, "Access denied");
             return;
@@ -38,20 +52,42 @@ public class SeekerServlet extends HttpServlet {
         
         switch (action) {
             case "getSkills":
-                getSkills(response);
+                if (!ConditionalGet.notModified(request, response, null, Domain.SKILLS)) {
+                    getSkills(response);
+                }
                 break;
             case "getCities":
-                getCities(response);
+                if (!ConditionalGet.notModified(request, response, null, Domain.CITIES)) {
+                    getCities(response);
+                }
                 break;
             case "getProviders":
-                getProviders(request, response);
+                if (!ConditionalGet.notModified(request, response, null, Domain.PROVIDERS, Domain.BOOKINGS)) {
+                    getProviders(request, response);
+                }
+                break;
+            case "getProviderCalendar":
+                if (!ConditionalGet.notModified(request, response, null, Domain.BOOKINGS)) {
+                    getProviderCalendar(request, response);
+                }
                 break;
             case "getStats":
-                getStats(response);
+                if (!ConditionalGet.notModified(request, response, null, Domain.PROVIDERS)) {
+                    getStats(response);
+                }
                 break;
             case "checkNotifications":
                 checkNotifications(user.getId(), response);
                 break;
+            case "getNotifications":
+                NotificationActions.getNotifications(request, response, user.getId());
+                break;
+            case "getUnreadCount":
+                NotificationActions.getUnreadCount(response, user.getId());
+                break;
+            case "getRecentNotifications":
+                NotificationActions.getRecentNotifications(request, response, user.getId());
+                break;
             default:
                 AlertUtil.sendError(response, "Invalid action");
         }
@@ -61,13 +97,12 @@ public class SeekerServlet extends HttpServlet {
     protected void doPost(HttpServletRequest request, HttpServletResponse response) 
             throws ServletException, IOException {
         
-        HttpSession session = request.getSession(false);
-        if (session == null || session.getAttribute("user") == null) {
+        User user = SessionTokens.currentUser(request);
+        if (user == null) {
             AlertUtil.sendError(response, "Authentication required");
             return;
         }
         
-        User user = (User) session.getAttribute("user");
         if (!"Seeker".equals(user.getRole())) {
             AlertUtil.sendError(response, "Access denied");
             return;
@@ -97,7 +132,92 @@ public class SeekerServlet extends HttpServlet {
         
         String skill = request.getParameter("skill");
         String city = request.getParameter("city");
+        String availability = request.getParameter("availability");
         String search = request.getParameter("search");
+        String availableOn = request.getParameter("availableOn");
+        
+        PageCursor after;
+        int pageSize;
+        try {
+            after = PageCursor.decode(request.getParameter("cursor"));
+            pageSize = parsePageSize(request.getParameter("pageSize"));
+        } catch (IllegalArgumentException e) {
+            AlertUtil.sendError(response, "Invalid cursor or page size");
+            return;
+        }
+        
+        // availableOn=YYYY-MM-DD keeps only providers with no booking that day
+        LocalDate freeOn = null;
+        if (availableOn != null && !availableOn.trim().isEmpty()) {
+            try {
+                freeOn = LocalDate.parse(availableOn.trim());
+            } catch (DateTimeParseException e) {
+                AlertUtil.sendError(response, "Invalid date");
+                return;
+            }
+        }
+        
+        // mode=fulltext ranks by relevance over name, skill and description
+        boolean fullText = "fulltext".equals(request.getParameter("mode")) && 
+                           search != null && !search.trim().isEmpty();
+        
+        try {
+            BookingCalendar calendar = BookingCalendar.getInstance();
+            if (freeOn != null && !calendar.covers(freeOn)) {
+                sendOutsideHorizon(response);
+                return;
+            }
+            ProviderIndex index = ProviderIndex.getInstance();
+            try {
+                AlertUtil.sendSuccess(response, fullText
+                    ? index.searchFullText(search, skill, city, availability, freeOn, after, pageSize)
+                    : index.search(skill, city, availability, search, freeOn, after, pageSize));
+            } catch (IllegalArgumentException e) {
+                // The window moves at midnight, so the date may have left it since the check above
+                if (freeOn != null && !calendar.covers(freeOn)) {
+                    sendOutsideHorizon(response);
+                } else {
+                    AlertUtil.sendError(response, "Invalid cursor or page size");
+                }
+            }
+            return;
+        } catch (SQLException e) {
+            // Index could not be loaded; answer from the database instead
+            System.err.println("Provider index unavailable, falling back to SQL: " + e.getMessage());
+        }
+        if (fullText && after != null) {
+            // A relevance cursor means nothing to the name-ordered query below
+            AlertUtil.sendError(response, "Ranked search is unavailable right now, please search again");
+            return;
+        }
+        getProvidersFromDatabase(skill, city, availability, search, freeOn, after, pageSize, fullText, response);
+    }
+    
+    private static void sendOutsideHorizon(HttpServletResponse response) throws IOException {
+        AlertUtil.sendError(response, "Date must be between today and " +
+            BookingCalendar.HORIZON_DAYS + " days from now");
+    }
+    
+    private static int parsePageSize(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        int size = Integer.parseInt(value.trim());
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        // Hard cap regardless of what the client asks for
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+    
+    /**
+     * The provider listing straight from SQL, used while the index cannot be
+     * loaded. A full-text request gets a name-ordered page marked as not
+     * ranked; its cursor continues without mode=fulltext.
+     */
+    private void getProvidersFromDatabase(String skill, String city, String availability, String search,
+            LocalDate freeOn, PageCursor after, int pageSize, boolean fullText,
+            HttpServletResponse response) throws IOException {
         
         List<User> providers = new ArrayList<>();
         
@@ -124,17 +244,43 @@ public class SeekerServlet extends HttpServlet {
                 params.add(city);
             }
             
+            if (availability != null && !availability.isEmpty()) {
+                conditions.add("pd.availability_status = ?");
+                params.add(availability);
+            }
+            
             if (search != null && !search.isEmpty()) {
-                conditions.add("(u.full_name LIKE ? OR pd.primary_skill LIKE ?)");
+                if (fullText) {
+                    conditions.add("(u.full_name LIKE ? OR pd.primary_skill LIKE ? OR pd.description LIKE ?)");
+                    params.add("%" + search + "%");
+                } else {
+                    conditions.add("(u.full_name LIKE ? OR pd.primary_skill LIKE ?)");
+                }
                 params.add("%" + search + "%");
                 params.add("%" + search + "%");
             }
             
+            if (freeOn != null) {
+                conditions.add("NOT EXISTS (SELECT 1 FROM bookings b WHERE b.provider_id = u.user_id " +
+                               "AND b.service_date = ? AND b.status != 'Cancelled')");
+                params.add(java.sql.Date.valueOf(freeOn));
+            }
+            
+            // Keyset pagination: continue strictly after the last (name, id) seen
+            if (after != null) {
+                conditions.add("(u.full_name > ? OR (u.full_name = ? AND u.user_id > ?))");
+                params.add(after.getKey());
+                params.add(after.getKey());
+                params.add(after.getId());
+            }
+            
             if (!conditions.isEmpty()) {
                 sql.append(" AND ").append(String.join(" AND ", conditions));
             }
             
-            sql.append(" ORDER BY u.full_name");
+            // Fetch one extra row to know whether another page exists
+            sql.append(" ORDER BY u.full_name, u.user_id LIMIT ?");
+            params.add(pageSize + 1);
             
             PreparedStatement stmt = conn.prepareStatement(sql.toString());
             for (int i = 0; i < params.size(); i++) {
@@ -165,10 +311,60 @@ public class SeekerServlet extends HttpServlet {
             return;
         }
         
-        AlertUtil.sendSuccess(response, providers);
+        String nextCursor = null;
+        if (providers.size() > pageSize) {
+            providers.remove(providers.size() - 1);
+            User last = providers.get(providers.size() - 1);
+            nextCursor = new PageCursor(last.getFullName(), last.getId()).encode();
+        }
+        AlertUtil.sendSuccess(response, new ResultPage<>(providers, nextCursor, fullText ? Boolean.FALSE : null));
+    }
+    
+    private void getProviderCalendar(HttpServletRequest request, HttpServletResponse response) 
+            throws IOException {
+        int providerId;
+        YearMonth month;
+        try {
+            providerId = Integer.parseInt(request.getParameter("providerId"));
+            String monthParam = request.getParameter("month");
+            month = monthParam != null && !monthParam.trim().isEmpty()
+                ? YearMonth.parse(monthParam.trim())
+                : YearMonth.now();
+        } catch (NumberFormatException | DateTimeParseException e) {
+            AlertUtil.sendError(response, "Invalid provider ID or month");
+            return;
+        }
+        
+        try {
+            Map<String, Object> calendar = new HashMap<>();
+            calendar.put("providerId", providerId);
+            calendar.put("month", month.toString());
+            calendar.putAll(BookingCalendar.getInstance().month(providerId, month));
+            AlertUtil.sendSuccess(response, calendar);
+        } catch (IllegalArgumentException e) {
+            AlertUtil.sendError(response, "Month must be within the next " +
+                BookingCalendar.HORIZON_DAYS + " days");
+        } catch (SQLException e) {
+            e.printStackTrace();
+            AlertUtil.sendError(response, "Database error");
+        }
     }
     
     private void getStats(HttpServletResponse response) throws IOException {
+        try {
+            StatsCounters.Snapshot counters = StatsCounters.get();
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("totalProviders", counters.getActiveProviders());
+            stats.put("citiesCount", counters.getCitiesCount());
+            AlertUtil.sendSuccess(response, stats);
+            return;
+        } catch (SQLException e) {
+            System.err.println("Stats counters unavailable, counting in SQL: " + e.getMessage());
+        }
+        getStatsFromDatabase(response);
+    }
+    
+    private void getStatsFromDatabase(HttpServletResponse response) throws IOException {
         Map<String, Object> stats = new HashMap<>();
         
         try (Connection conn = DBConnection.getConnection()) {
@@ -218,49 +414,44 @@ public class SeekerServlet extends HttpServlet {
             
             LocalDate date = LocalDate.parse(serviceDate);
             
-            try (Connection conn = DBConnection.getConnection()) {
-                String checkSql = "SELECT COUNT(*) FROM bookings " +
-                                 "WHERE provider_id = ? AND service_date = ? AND status != 'Cancelled'";
-                PreparedStatement checkStmt = conn.prepareStatement(checkSql);
-                checkStmt.setInt(1, providerId);
-                // FIX: Use java.sql.Date explicitly
-                checkStmt.setDate(2, java.sql.Date.valueOf(date));
-                
-                ResultSet rs = checkStmt.executeQuery();
-                if (rs.next() && rs.getInt(1) > 0) {
+            // Turn away days already known to be taken without touching the database
+            BookingCalendar calendar = BookingCalendar.getInstance();
+            try {
+                if (calendar.covers(date) && calendar.isBooked(providerId, date)) {
+                    AlertUtil.sendError(response, "Provider is already booked on this date");
+                    return;
+                }
+            } catch (SQLException e) {
+                System.err.println("Booking calendar unavailable, leaving the check to the insert: " + e.getMessage());
+            }
+            
+            Booking booking = new Booking();
+            booking.setSeekerId(seekerId);
+            booking.setProviderId(providerId);
+            booking.setSeekerName(seekerName.trim());
+            booking.setPhone(seekerPhone.trim());
+            booking.setAddress(serviceAddress.trim());
+            booking.setDate(date);
+            booking.setDetails(serviceDetails.trim());
+            
+            try {
+                // The conflict check and the insert are one statement
+                if (!BookingStore.insertIfFree(booking)) {
+                    calendar.book(providerId, date);
                     AlertUtil.sendError(response, "Provider is already booked on this date");
                     return;
                 }
                 
-                String insertSql = "INSERT INTO bookings " +
-                                 "(seeker_id, provider_id, seeker_name, seeker_phone, " +
-                                 "service_address, service_date, service_details, status) " +
-                                 "VALUES (?, ?, ?, ?, ?, ?, ?, 'Pending')";
-                
-                PreparedStatement insertStmt = conn.prepareStatement(insertSql);
-                insertStmt.setInt(1, seekerId);
-                insertStmt.setInt(2, providerId);
-                insertStmt.setString(3, seekerName.trim());
-                insertStmt.setString(4, seekerPhone.trim());
-                insertStmt.setString(5, serviceAddress.trim());
-                // FIX: Use java.sql.Date explicitly
-                insertStmt.setDate(6, java.sql.Date.valueOf(date));
-                insertStmt.setString(7, serviceDetails.trim());
-                
-                int rows = insertStmt.executeUpdate();
+                calendar.book(providerId, date);
+                DataVersions.bump(Domain.BOOKINGS);
+                StatsCounters.bookingAdded(providerId);
+                String message = String.format(
+                    "New booking request from %s for %s",
+                    seekerName, date.toString()
+                );
+                DatabaseHelper.sendNotification(providerId, message);
                 
-                if (rows > 0) {
-                    String providerName = getProviderName(conn, providerId);
-                    String message = String.format(
-                        "New booking request from %s for %s",
-                        seekerName, date.toString()
-                    );
-                    DatabaseHelper.sendNotification(providerId, message);
-                    
-                    AlertUtil.sendSuccess(response, "Booking request sent successfully!");
-                } else {
-                    AlertUtil.sendError(response, "Failed to create booking");
-                }
+                AlertUtil.sendSuccess(response, "Booking request sent successfully!");
                 
             } catch (SQLException e) {
                 e.printStackTrace();
@@ -269,14 +460,8 @@ public class SeekerServlet extends HttpServlet {
             
         } catch (NumberFormatException e) {
             AlertUtil.sendError(response, "Invalid provider ID");
+        } catch (DateTimeParseException e) {
+            AlertUtil.sendError(response, "Invalid service date");
         }
     }
-    
-    private String getProviderName(Connection conn, int providerId) throws SQLException {
-        String sql = "SELECT full_name FROM users WHERE user_id = ?";
-        PreparedStatement stmt = conn.prepareStatement(sql);
-        stmt.setInt(1, providerId);
-        ResultSet rs = stmt.executeQuery();
-        return rs.next() ? rs.getString("full_name") : "Provider";
-    }
 }
\ No newline at end of file
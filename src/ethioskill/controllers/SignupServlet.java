@@ -3,10 +3,13 @@ package ethioskill.controllers;
 import ethioskill.models.User;
 import ethioskill.database.DBConnection;
 import ethioskill.database.DatabaseHelper;
+import ethioskill.database.DataVersions;
+import ethioskill.database.DataVersions.Domain;
+import ethioskill.database.StatsCounters;
+import ethioskill.search.UserSearchIndex;
 import ethioskill.utils.AlertUtil;
 import ethioskill.utils.Validator;
 import ethioskill.utils.PasswordUtil;
-import com.google.gson.Gson;
 
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
@@ -15,6 +18,7 @@ import java.io.IOException;
 import java.sql.*;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @WebServlet("/SignupServlet")
 public class SignupServlet extends HttpServlet {
@@ -60,6 +64,16 @@ public class SignupServlet extends HttpServlet {
         // Format phone
         phone = Validator.formatPhone(phone);
         
+        // Hash the password before storing; done up front so no pooled
+        // connection is held while the hash is computed
+        String hashedPassword;
+        try {
+            hashedPassword = PasswordUtil.hashPassword(password);
+        } catch (RejectedExecutionException e) {
+            AlertUtil.sendError(response, "Server is busy, please try again");
+            return;
+        }
+        
         try (Connection conn = DBConnection.getConnection()) {
             // Check if phone already exists
             if (phoneExists(conn, phone)) {
@@ -70,9 +84,6 @@ public class SignupServlet extends HttpServlet {
             // Determine status based on role
             String status = "Seeker".equals(accountType) ? "Verified" : "Pending";
             
-            // Hash the password before storing
-            String hashedPassword = PasswordUtil.hashPassword(password);
-            
             // Insert user
             String sql = "INSERT INTO users (full_name, phone_number, password, role, status) VALUES (?, ?, ?, ?, ?)";
             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
@@ -101,6 +112,9 @@ public class SignupServlet extends HttpServlet {
                     updateStmt.executeUpdate();
                     status = "Verified";
                 }
+                DataVersions.bump(Domain.USERS);
+                StatsCounters.userAdded(userId, accountType);
+                UserSearchIndex.getInstance().refreshUser(userId);
                 
                 // Prepare response
                 Map<String, Object> responseData = new HashMap<>();
@@ -120,9 +134,7 @@ public class SignupServlet extends HttpServlet {
                     DatabaseHelper.sendNotification(userId, welcomeMsg);
                 }
                 
-                response.setContentType("application/json");
-                response.setCharacterEncoding("UTF-8");
-                response.getWriter().write(new Gson().toJson(responseData));
+                AlertUtil.sendJson(response, responseData);
                 
             } else {
                 AlertUtil.sendError(response, "Registration failed. Please try again.");
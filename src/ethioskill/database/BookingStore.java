@@ -0,0 +1,86 @@
+package ethioskill.database;
+
+import ethioskill.models.Booking;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Creates bookings while enforcing "one active booking per provider per day"
+ * inside MySQL rather than with a separate check.
+ *
+ * The insert only happens if no active booking exists for that provider and
+ * date, decided by the same statement, so a booking costs one round trip and
+ * two seekers racing for the same day cannot both win. Under InnoDB's default
+ * REPEATABLE READ the NOT EXISTS probe takes gap locks; when two requests
+ * collide one of them is chosen as a deadlock victim and retried, and the
+ * retry then sees the other booking. The optional unique key described in
+ * the README gives the same guarantee at any isolation level; its duplicate
+ * key error is reported as a conflict as well.
+ */
+public class BookingStore {
+
+    private static final String INSERT_IF_FREE_SQL =
+        "INSERT INTO bookings " +
+        "(seeker_id, provider_id, seeker_name, seeker_phone, service_address, service_date, service_details, status) " +
+        "SELECT ?, ?, ?, ?, ?, ?, ?, 'Pending' FROM DUAL " +
+        "WHERE NOT EXISTS (SELECT 1 FROM bookings " +
+        "WHERE provider_id = ? AND service_date = ? AND status != 'Cancelled')";
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    // MySQL error codes
+    private static final int ER_DUP_ENTRY = 1062;
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    private static final int ER_LOCK_DEADLOCK = 1213;
+
+    /**
+     * Stores {@code booking} as Pending unless its provider already has an
+     * active booking on that date. On success the generated id is set on it.
+     *
+     * @return true if the booking was created, false if the day is taken
+     */
+    public static boolean insertIfFree(Booking booking) throws SQLException {
+        java.sql.Date date = java.sql.Date.valueOf(booking.getDate());
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_IF_FREE_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, booking.getSeekerId());
+            stmt.setInt(2, booking.getProviderId());
+            stmt.setString(3, booking.getSeekerName());
+            stmt.setString(4, booking.getPhone());
+            stmt.setString(5, booking.getAddress());
+            stmt.setDate(6, date);
+            stmt.setString(7, booking.getDetails());
+            stmt.setInt(8, booking.getProviderId());
+            stmt.setDate(9, date);
+
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    if (stmt.executeUpdate() == 0) {
+                        return false;
+                    }
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            booking.setId(keys.getInt(1));
+                        }
+                    }
+                    booking.setStatus("Pending");
+                    return true;
+                } catch (SQLException e) {
+                    if (e.getErrorCode() == ER_DUP_ENTRY) {
+                        return false;
+                    }
+                    boolean lockConflict = e.getErrorCode() == ER_LOCK_DEADLOCK ||
+                                           e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT;
+                    // The statement was rolled back; running it again sees the winner's row
+                    if (!lockConflict || attempt >= MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+}
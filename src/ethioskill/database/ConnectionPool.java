@@ -0,0 +1,336 @@
+package ethioskill.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small, dependency-free JDBC connection pool.
+ *
+ * Borrowed connections are handed out as proxies: calling close() returns the
+ * physical connection to the pool instead of closing the socket. Any statements
+ * the caller forgot to close are closed at that point, so the existing
+ * "close the connection and forget the rest" code in the servlets stays safe.
+ *
+ * A connection held past the leak threshold is counted and logged. Recording
+ * the stack trace of every borrow is too expensive to leave on, so the
+ * borrowing code is only shown when the pool is built with traceBorrows.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final long leakThresholdMs;
+    private final boolean traceBorrows;
+    private final int validationTimeoutSec;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<Connection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<Lease> active = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // Statistics
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize, long borrowTimeoutMs, long leakThresholdMs,
+                          boolean traceBorrows) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool max size must be at least 1");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = Math.max(0, Math.min(minSize, maxSize));
+        this.maxSize = maxSize;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.traceBorrows = traceBorrows;
+        this.validationTimeoutSec = 2;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, leakThresholdMs / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+
+        fillToMinimum();
+    }
+
+    /**
+     * Borrows a connection, waiting up to the configured timeout for a free slot.
+     * The returned connection must be closed to give it back to the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new SQLTransientConnectionException("Timed out after " + borrowTimeoutMs +
+                " ms waiting for a database connection (pool size " + maxSize + ")");
+        }
+
+        try {
+            Connection physical = takeValidIdle();
+            if (physical == null) {
+                physical = createPhysical();
+            }
+            borrowCount.incrementAndGet();
+            Lease lease = new Lease(physical);
+            active.add(lease);
+            return lease.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Connection takeValidIdle() {
+        Connection candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            try {
+                if (candidate.isValid(validationTimeoutSec)) {
+                    return candidate;
+                }
+            } catch (SQLException e) {
+                // fall through and discard
+            }
+            validationFailures.incrementAndGet();
+            destroy(candidate);
+        }
+        return null;
+    }
+
+    private Connection createPhysical() throws SQLException {
+        Connection conn = DriverManager.getConnection(url, user, password);
+        totalConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        return conn;
+    }
+
+    private void destroy(Connection conn) {
+        totalConnections.decrementAndGet();
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            // already broken, nothing else to do
+        }
+    }
+
+    private void release(Lease lease) {
+        if (!active.remove(lease)) {
+            return;
+        }
+        Connection physical = lease.physical;
+        boolean reusable = !closed;
+        try {
+            if (reusable && !physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (reusable && physical.isReadOnly()) {
+                physical.setReadOnly(false);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (reusable) {
+            idle.offerFirst(physical);
+        } else {
+            destroy(physical);
+        }
+        permits.release();
+    }
+
+    private void fillToMinimum() {
+        while (!closed && totalConnections.get() < minSize) {
+            try {
+                idle.offerLast(createPhysical());
+            } catch (SQLException e) {
+                System.err.println("Connection pool could not pre-open connections: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+            for (Lease lease : active) {
+                if (!lease.leakReported && now - lease.borrowedAt > leakThresholdMs) {
+                    lease.leakReported = true;
+                    leakCount.incrementAndGet();
+                    System.err.println("Possible connection leak: connection held for " +
+                        (now - lease.borrowedAt) + " ms by thread " + lease.threadName +
+                        (lease.borrowSite != null ? ". Borrowed at:" : " (set DB_POOL_LEAK_TRACE=true to see where)"));
+                    if (lease.borrowSite != null) {
+                        lease.borrowSite.printStackTrace();
+                    }
+                }
+            }
+            fillToMinimum();
+        } catch (RuntimeException e) {
+            System.err.println("Connection pool housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops handing out new ones.
+     * Connections still on loan are closed as they are returned.
+     */
+    public void shutdown() {
+        closed = true;
+        housekeeper.shutdownNow();
+        Connection conn;
+        while ((conn = idle.pollFirst()) != null) {
+            destroy(conn);
+        }
+    }
+
+    /**
+     * Snapshot of the pool counters for operators.
+     */
+    public Map<String, Object> getStatistics() {
+        long borrows = borrowCount.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("minSize", minSize);
+        stats.put("maxSize", maxSize);
+        stats.put("totalConnections", totalConnections.get());
+        stats.put("activeConnections", active.size());
+        stats.put("idleConnections", idle.size());
+        stats.put("waitingThreads", permits.getQueueLength());
+        stats.put("borrowCount", borrows);
+        stats.put("createdCount", createdCount.get());
+        stats.put("timeoutCount", timeoutCount.get());
+        stats.put("validationFailures", validationFailures.get());
+        stats.put("leakCount", leakCount.get());
+        stats.put("averageWaitMs", borrows == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / borrows);
+        stats.put("maxWaitMs", maxWaitNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    /**
+     * One loan of a physical connection. The proxy tracks statements opened
+     * through it so they can be closed when the caller closes the connection.
+     */
+    private class Lease implements InvocationHandler {
+        final Connection physical;
+        final Connection proxy;
+        final long borrowedAt = System.currentTimeMillis();
+        final String threadName = Thread.currentThread().getName();
+        final Throwable borrowSite; // null unless traceBorrows
+        final List<Statement> statements = new ArrayList<>();
+        volatile boolean leakReported = false;
+        private volatile boolean returned = false;
+
+        Lease(Connection physical) {
+            this.physical = physical;
+            this.borrowSite = traceBorrows ? new Throwable("Connection borrowed here") : null;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxyObj, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    closeLease();
+                    return null;
+                case "isClosed":
+                    return returned;
+                case "equals":
+                    return proxyObj == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxyObj);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            try {
+                Object result = method.invoke(physical, args);
+                if (result instanceof Statement) {
+                    synchronized (statements) {
+                        statements.add((Statement) result);
+                    }
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void closeLease() {
+            synchronized (this) {
+                if (returned) return;
+                returned = true;
+            }
+            synchronized (statements) {
+                for (Statement stmt : statements) {
+                    try {
+                        stmt.close();
+                    } catch (SQLException e) {
+                        // statement already unusable
+                    }
+                }
+                statements.clear();
+            }
+            release(this);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package ethioskill.database;
 
+import ethioskill.utils.EnvConfig;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Map;
 
 public class DBConnection {
     
@@ -23,15 +25,45 @@ public class DBConnection {
         }
     }
     
+    // Pool defaults, overridable through DB_POOL_* environment variables
+    private static final int DEFAULT_POOL_MIN = 2;
+    private static final int DEFAULT_POOL_MAX = 20;
+    private static final long DEFAULT_POOL_TIMEOUT_MS = 5000;
+    private static final long DEFAULT_POOL_LEAK_THRESHOLD_MS = 30000;
+    
+    private static volatile ConnectionPool pool;
+    
     /**
-     * Establishes a NEW connection to the database.
-     * Note: In a web application, never share a static Connection object.
-     * Always create a new one and close it when done (using try-with-resources).
+     * Borrows a connection from the shared pool.
+     * Callers keep using try-with-resources: closing the connection returns it
+     * to the pool, and any statements left open on it are closed at that point.
      * 
      * @return A valid Connection object
-     * @throws SQLException if connection fails
+     * @throws SQLException if no connection could be obtained
      */
     public static Connection getConnection() throws SQLException {
+        return getPool().getConnection();
+    }
+    
+    /**
+     * Returns the shared pool, creating it on first use.
+     * Credentials are read from the environment only once.
+     */
+    private static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DBConnection.class) {
+                current = pool;
+                if (current == null) {
+                    current = createPool();
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+    
+    private static ConnectionPool createPool() {
         // 1. Try to get credentials from System Environment Variables (Best Practice for Prod)
         String url = System.getenv("DB_URL");
         String user = System.getenv("DB_USER");
@@ -47,14 +79,32 @@ public class DBConnection {
         if (password == null || password.trim().isEmpty()) {
             password = DEFAULT_PASSWORD;
         }
-
-        try {
-            return DriverManager.getConnection(url, user, password);
-        } catch (SQLException e) {
-            System.err.println("Database Connection Failed!");
-            System.err.println("URL: " + url);
-            System.err.println("User: " + user);
-            throw e;
+        
+        int minSize = (int) EnvConfig.readLong("DB_POOL_MIN", DEFAULT_POOL_MIN, 0);
+        int maxSize = (int) EnvConfig.readLong("DB_POOL_MAX", DEFAULT_POOL_MAX);
+        long timeoutMs = EnvConfig.readLong("DB_POOL_TIMEOUT_MS", DEFAULT_POOL_TIMEOUT_MS);
+        long leakMs = EnvConfig.readLong("DB_POOL_LEAK_THRESHOLD_MS", DEFAULT_POOL_LEAK_THRESHOLD_MS);
+        boolean traceLeaks = "true".equalsIgnoreCase(System.getenv("DB_POOL_LEAK_TRACE"));
+        
+        System.err.println("Initializing database pool (min=" + minSize + ", max=" + maxSize +
+                           ") for " + url + " as " + user);
+        return new ConnectionPool(url, user, password, minSize, maxSize, timeoutMs, leakMs, traceLeaks);
+    }
+    
+    /**
+     * Live pool statistics (active, idle, wait times, timeouts, leaks).
+     */
+    public static Map<String, Object> getPoolStats() {
+        return getPool().getStatistics();
+    }
+    
+    /**
+     * Closes all pooled connections. Called when the web application stops.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
         }
     }
     
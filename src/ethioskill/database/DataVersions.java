@@ -0,0 +1,75 @@
+package ethioskill.database;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Change counters for the data behind the dashboard GET actions.
+ *
+ * Every write that changes what a GET would return bumps the counter of the
+ * data it touched. A response's ETag is built from the counters it depends on,
+ * so an unchanged ETag means the data is unchanged and the servlet can answer
+ * 304 without querying anything. Counters live in memory only; the boot time
+ * is part of every tag so a restart never revalidates an old one.
+ */
+public class DataVersions {
+
+    public enum Domain {
+        SKILLS, CITIES, PROVIDERS, USERS, BOOKINGS, SETTINGS
+    }
+
+    private static final long BOOT_TIME = System.currentTimeMillis();
+    private static final String BOOT_TAG = Long.toString(BOOT_TIME, 36);
+
+    private static final AtomicLongArray versions = new AtomicLongArray(Domain.values().length);
+    private static final AtomicLongArray modifiedAt = new AtomicLongArray(Domain.values().length);
+
+    static {
+        for (int i = 0; i < modifiedAt.length(); i++) {
+            modifiedAt.set(i, BOOT_TIME);
+        }
+    }
+
+    private DataVersions() {}
+
+    /**
+     * Records a change. Call after the write has committed.
+     */
+    public static void bump(Domain... domains) {
+        long now = System.currentTimeMillis();
+        for (Domain d : domains) {
+            versions.incrementAndGet(d.ordinal());
+            modifiedAt.accumulateAndGet(d.ordinal(), now, Math::max);
+        }
+    }
+
+    public static long getVersion(Domain domain) {
+        return versions.get(domain.ordinal());
+    }
+
+    /**
+     * Newest change time across the given domains, in epoch millis.
+     */
+    public static long lastModified(Domain... domains) {
+        long latest = BOOT_TIME;
+        for (Domain d : domains) {
+            latest = Math.max(latest, modifiedAt.get(d.ordinal()));
+        }
+        return latest;
+    }
+
+    /**
+     * Weak entity tag for a response built from these domains. The scope
+     * separates responses that share a URL but differ per caller (e.g. a
+     * provider's own bookings), so one user's tag never validates another's.
+     */
+    public static String etag(String scope, Domain... domains) {
+        StringBuilder tag = new StringBuilder("W/\"").append(BOOT_TAG);
+        for (Domain d : domains) {
+            tag.append('-').append(versions.get(d.ordinal()));
+        }
+        if (scope != null && !scope.isEmpty()) {
+            tag.append('-').append(scope);
+        }
+        return tag.append('"').toString();
+    }
+}
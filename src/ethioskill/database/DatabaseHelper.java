@@ -1,5 +1,7 @@
 package ethioskill.database;
 
+import ethioskill.models.Notification;
+
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -7,49 +9,45 @@ import java.util.List;
 public class DatabaseHelper {
     
     public static boolean isAutoVerifyEnabled() {
-        try (Connection conn = DBConnection.getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement(
-                "SELECT setting_value FROM settings WHERE setting_key = 'auto_verify'"
-            );
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return "true".equalsIgnoreCase(rs.getString("setting_value"));
-            }
-        } catch (SQLException e) {
-            System.err.println("Database error in isAutoVerifyEnabled: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return false;
+        return SettingsStore.getBoolean("auto_verify", false);
     }
     
+    // Cities and skills change rarely; edits through this class invalidate
+    // the cache immediately and the TTL covers edits made directly in MySQL.
+    private static final long REFERENCE_TTL_MS = 10 * 60 * 1000;
+    
+    private static final ReferenceCache citiesCache = new ReferenceCache(
+        "cities", DataVersions.Domain.CITIES, REFERENCE_TTL_MS,
+        () -> loadNames("SELECT city_name FROM cities ORDER BY city_name"));
+    
+    private static final ReferenceCache skillsCache = new ReferenceCache(
+        "skills", DataVersions.Domain.SKILLS, REFERENCE_TTL_MS,
+        () -> loadNames("SELECT skill_name FROM skills ORDER BY skill_name"));
+    
+    /**
+     * @return immutable, cached list of city names in alphabetical order
+     */
     public static List<String> getCities() {
-        List<String> cities = new ArrayList<>();
-        try (Connection conn = DBConnection.getConnection()) {
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery("SELECT city_name FROM cities ORDER BY city_name");
-            while (rs.next()) {
-                cities.add(rs.getString("city_name"));
-            }
-        } catch (SQLException e) {
-            System.err.println("Database error in getCities: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return cities;
+        return citiesCache.get();
     }
     
+    /**
+     * @return immutable, cached list of skill names in alphabetical order
+     */
     public static List<String> getSkills() {
-        List<String> skills = new ArrayList<>();
-        try (Connection conn = DBConnection.getConnection()) {
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery("SELECT skill_name FROM skills ORDER BY skill_name");
+        return skillsCache.get();
+    }
+    
+    private static List<String> loadNames(String sql) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
-                skills.add(rs.getString("skill_name"));
+                names.add(rs.getString(1));
             }
-        } catch (SQLException e) {
-            System.err.println("Database error in getSkills: " + e.getMessage());
-            e.printStackTrace();
         }
-        return skills;
+        return names;
     }
     
     public static boolean addCity(String cityName) {
@@ -62,7 +60,12 @@ public class DatabaseHelper {
                 "INSERT INTO cities (city_name) VALUES (?)"
             );
             stmt.setString(1, cityName.trim());
-            return stmt.executeUpdate() > 0;
+            boolean changed = stmt.executeUpdate() > 0;
+            if (changed) {
+                citiesCache.invalidate();
+                DataVersions.bump(DataVersions.Domain.CITIES);
+            }
+            return changed;
         } catch (SQLException e) {
             System.err.println("Database error in addCity: " + e.getMessage());
             e.printStackTrace();
@@ -80,7 +83,12 @@ public class DatabaseHelper {
                 "DELETE FROM cities WHERE city_name = ?"
             );
             stmt.setString(1, cityName.trim());
-            return stmt.executeUpdate() > 0;
+            boolean changed = stmt.executeUpdate() > 0;
+            if (changed) {
+                citiesCache.invalidate();
+                DataVersions.bump(DataVersions.Domain.CITIES);
+            }
+            return changed;
         } catch (SQLException e) {
             System.err.println("Database error in deleteCity: " + e.getMessage());
             e.printStackTrace();
@@ -98,7 +106,12 @@ public class DatabaseHelper {
                 "INSERT INTO skills (skill_name) VALUES (?)"
             );
             stmt.setString(1, skillName.trim());
-            return stmt.executeUpdate() > 0;
+            boolean changed = stmt.executeUpdate() > 0;
+            if (changed) {
+                skillsCache.invalidate();
+                DataVersions.bump(DataVersions.Domain.SKILLS);
+            }
+            return changed;
         } catch (SQLException e) {
             System.err.println("Database error in addSkill: " + e.getMessage());
             e.printStackTrace();
@@ -116,7 +129,12 @@ public class DatabaseHelper {
                 "DELETE FROM skills WHERE skill_name = ?"
             );
             stmt.setString(1, skillName.trim());
-            return stmt.executeUpdate() > 0;
+            boolean changed = stmt.executeUpdate() > 0;
+            if (changed) {
+                skillsCache.invalidate();
+                DataVersions.bump(DataVersions.Domain.SKILLS);
+            }
+            return changed;
         } catch (SQLException e) {
             System.err.println("Database error in deleteSkill: " + e.getMessage());
             e.printStackTrace();
@@ -124,43 +142,29 @@ public class DatabaseHelper {
         }
     }
     
+    /**
+     * Queues a notification; it is written to the database in the background
+     * by NotificationDispatcher, batched with other pending notifications.
+     */
     public static void sendNotification(int userId, String message) {
         if (message == null) {
             System.err.println("Cannot send notification: message is null");
             return;
         }
-        try (Connection conn = DBConnection.getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement(
-                "INSERT INTO notifications (user_id, message) VALUES (?, ?)"
-            );
-            stmt.setInt(1, userId);
-            stmt.setString(2, message);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            System.err.println("Database error in sendNotification: " + e.getMessage());
-            e.printStackTrace();
-        }
+        NotificationDispatcher.submit(userId, message);
     }
     
+    /**
+     * Returns (and marks read) the user's unread messages, newest first.
+     * Capped at one inbox page; use NotificationInbox directly for paging.
+     */
     public static List<String> getUnreadNotifications(int userId) {
         List<String> notifications = new ArrayList<>();
-        try (Connection conn = DBConnection.getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement(
-                "SELECT notification_id, message FROM notifications " +
-                "WHERE user_id = ? AND is_read = FALSE ORDER BY created_at DESC"
-            );
-            stmt.setInt(1, userId);
-            ResultSet rs = stmt.executeQuery();
-            
-            while (rs.next()) {
-                notifications.add(rs.getString("message"));
-                
-                // Mark as read
-                PreparedStatement updateStmt = conn.prepareStatement(
-                    "UPDATE notifications SET is_read = TRUE WHERE notification_id = ?"
-                );
-                updateStmt.setInt(1, rs.getInt("notification_id"));
-                updateStmt.executeUpdate();
+        try {
+            NotificationInbox.Page page = NotificationInbox.fetchUnread(
+                userId, 0, NotificationInbox.DEFAULT_LIMIT, true);
+            for (Notification n : page.getNotifications()) {
+                notifications.add(0, n.getMessage());
             }
         } catch (SQLException e) {
             System.err.println("Database error in getUnreadNotifications: " + e.getMessage());
@@ -185,5 +189,6 @@ public class DatabaseHelper {
             System.err.println("Database error in updateSetting: " + e.getMessage());
             e.printStackTrace();
         }
+        SettingsStore.reload();
     }
 }
\ No newline at end of file
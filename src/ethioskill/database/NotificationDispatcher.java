@@ -0,0 +1,306 @@
+package ethioskill.database;
+
+import ethioskill.models.Notification;
+import ethioskill.push.NotificationStreams;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind queue for notification inserts.
+ *
+ * Request threads only enqueue; a single background writer groups queued
+ * notifications into multi-row INSERTs, flushing when a batch is full or
+ * FLUSH_INTERVAL_MS has passed. When the queue is full the caller waits
+ * briefly and then writes the row itself, so pressure slows callers down
+ * instead of losing notifications. Transient failures (lock timeouts,
+ * deadlocks, lost connections) are retried with backoff; any other error
+ * splits the batch into single-row inserts so only the row that cannot be
+ * stored, e.g. for a user deleted since submit, is counted as dropped. Once a
+ * batch is stored, each row is handed with its new id to
+ * {@link NotificationHub} and to {@link NotificationStreams} for live delivery.
+ */
+public class NotificationDispatcher {
+
+    private static final int QUEUE_CAPACITY = 10000;
+    private static final int MAX_BATCH_SIZE = 200;
+    private static final long FLUSH_INTERVAL_MS = 200;
+    private static final long ENQUEUE_WAIT_MS = 50;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MS = 500;
+
+    private static final BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static Thread writer;
+    private static volatile boolean running = false;
+    private static volatile boolean accepting = true;
+
+    // Statistics
+    private static final AtomicLong enqueued = new AtomicLong();
+    private static final AtomicLong written = new AtomicLong();
+    private static final AtomicLong batches = new AtomicLong();
+    private static final AtomicLong backpressureEvents = new AtomicLong();
+    private static final AtomicLong callerWrites = new AtomicLong();
+    private static final AtomicLong retries = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+
+    private static final class Pending {
+        final int userId;
+        final String message;
+        long id; // set once inserted
+
+        Pending(int userId, String message) {
+            this.userId = userId;
+            this.message = message;
+        }
+    }
+
+    private NotificationDispatcher() {}
+
+    /**
+     * Queues a notification for the background writer.
+     */
+    public static void submit(int userId, String message) {
+        if (!ensureStarted()) {
+            // Shutting down: write synchronously so nothing is lost
+            writeNow(userId, message);
+            return;
+        }
+
+        Pending pending = new Pending(userId, message);
+        if (queue.offer(pending)) {
+            enqueued.incrementAndGet();
+            flushIfStopped();
+            return;
+        }
+
+        backpressureEvents.incrementAndGet();
+        try {
+            if (queue.offer(pending, ENQUEUE_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                enqueued.incrementAndGet();
+                flushIfStopped();
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Queue is still full: fall back to a direct write on the caller's thread
+        writeNow(userId, message);
+    }
+
+    private static void writeNow(int userId, String message) {
+        callerWrites.incrementAndGet();
+        if (insertWithRetry(Collections.singletonList(new Pending(userId, message))) != null) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Starts the writer if needed.
+     *
+     * @return false once shutdown() has begun; the caller must write the row itself
+     */
+    private static synchronized boolean ensureStarted() {
+        if (!accepting) return false;
+        if (running) return true;
+        running = true;
+        writer = new Thread(NotificationDispatcher::runWriter, "notification-writer");
+        writer.setDaemon(true);
+        writer.start();
+        return true;
+    }
+
+    // shutdown() may have drained the queue between our check and the offer
+    private static void flushIfStopped() {
+        if (!accepting) {
+            drainAndFlush();
+        }
+    }
+
+    private static void drainAndFlush() {
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (int i = 0; i < rest.size(); i += MAX_BATCH_SIZE) {
+            flush(rest.subList(i, Math.min(rest.size(), i + MAX_BATCH_SIZE)));
+        }
+    }
+
+    private static void runWriter() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                // Collect more until the batch is full or the flush interval expires
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS);
+                while (batch.size() < MAX_BATCH_SIZE) {
+                    queue.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= MAX_BATCH_SIZE || remaining <= 0 || !running) break;
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // Only if the container interrupts the thread (shutdown() just clears
+                // `running`): drain what's left and exit; the next submit() starts a new writer
+                running = false;
+            } catch (RuntimeException e) {
+                System.err.println("Notification writer error: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private static void flush(List<Pending> batch) {
+        if (batch.isEmpty()) return;
+        SQLException failure = insertWithRetry(batch);
+        if (failure == null) {
+            batches.incrementAndGet();
+            return;
+        }
+        if (batch.size() > 1 && !isTransient(failure)) {
+            // One row that can never be stored must not take the others with it
+            for (Pending p : batch) {
+                if (insertWithRetry(Collections.singletonList(p)) != null) {
+                    dropped.incrementAndGet();
+                    System.err.println("Dropped notification for user " + p.userId);
+                }
+            }
+            return;
+        }
+        dropped.addAndGet(batch.size());
+        System.err.println("Dropped " + batch.size() + " notifications: " + failure.getMessage());
+    }
+
+    /**
+     * @return null once stored, otherwise the last error
+     */
+    private static SQLException insertWithRetry(List<Pending> batch) {
+        SQLException last = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                insertBatch(batch);
+                written.addAndGet(batch.size());
+                publish(batch);
+                return null;
+            } catch (SQLException e) {
+                System.err.println("Database error writing notifications (attempt " + attempt + "): " + e.getMessage());
+                last = e;
+                if (!isTransient(e)) {
+                    return e; // The same statement would fail the same way
+                }
+                if (attempt < MAX_ATTEMPTS) {
+                    retries.incrementAndGet();
+                    try {
+                        Thread.sleep(RETRY_BACKOFF_MS * attempt);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+        return last;
+    }
+
+    // Lost connection (SQLState 08xxx), pool timeout, lock wait timeout (1205) or deadlock (1213)
+    private static boolean isTransient(SQLException e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        return (state != null && (state.startsWith("08") || "40001".equals(state))) ||
+               e.getErrorCode() == 1205 || e.getErrorCode() == 1213;
+    }
+
+    private static void insertBatch(List<Pending> batch) throws SQLException {
+        StringBuilder sql = new StringBuilder("INSERT INTO notifications (user_id, message) VALUES ");
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+        }
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS)) {
+            int index = 1;
+            for (Pending p : batch) {
+                stmt.setInt(index++, p.userId);
+                stmt.setString(index++, p.message);
+            }
+            stmt.executeUpdate();
+            // One key per row, in VALUES order
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                for (Pending p : batch) {
+                    if (!keys.next()) break;
+                    p.id = keys.getLong(1);
+                }
+            }
+        }
+    }
+
+    private static void publish(List<Pending> batch) {
+        long now = System.currentTimeMillis();
+        for (Pending p : batch) {
+            if (p.id > 0) {
+                Notification n = new Notification(p.id, p.userId, p.message, now);
+                NotificationHub.added(n);
+                NotificationStreams.publish(n);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting new work and writes everything still queued.
+     * Called when the web application stops, before the pool is closed.
+     */
+    public static void shutdown() {
+        Thread current;
+        synchronized (NotificationDispatcher.class) {
+            accepting = false;
+            running = false;
+            current = writer;
+            writer = null;
+        }
+        if (current != null) {
+            try {
+                current.join(10000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Whatever the writer didn't get to (or if it never started)
+        drainAndFlush();
+    }
+
+    public static Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("queueCapacity", QUEUE_CAPACITY);
+        stats.put("enqueued", enqueued.get());
+        stats.put("written", written.get());
+        stats.put("batches", batches.get());
+        stats.put("backpressureEvents", backpressureEvents.get());
+        stats.put("callerWrites", callerWrites.get());
+        stats.put("retries", retries.get());
+        stats.put("dropped", dropped.get());
+        return stats;
+    }
+}
@@ -0,0 +1,419 @@
+package ethioskill.database;
+
+import ethioskill.models.Notification;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory view of each active user's notifications: the BUFFER_SIZE most
+ * recent ones plus the total number still unread.
+ *
+ * A user's inbox is loaded from MySQL the first time it is asked for and
+ * then kept current by NotificationDispatcher, which reports every row it
+ * writes. The unread badge, the recent list and unread pages are answered
+ * from here; NotificationInbox only goes to the table when some unread
+ * notifications are older than the buffer. Marking notifications read
+ * updates memory at once and the table in a batched UPDATE every
+ * MARK_READ_INTERVAL_MS, so the table stays the durable copy.
+ *
+ * Only this node's dispatcher reports rows, so notifications written by
+ * other nodes behind a load balancer are not seen here. An inbox is therefore
+ * reloaded from the table once it is older than INBOX_MAX_AGE_MS, which
+ * bounds how long another node's writes and read marks can be missing.
+ *
+ * At most MAX_USERS inboxes are kept, least recently used first out.
+ */
+public class NotificationHub {
+
+    public static final int BUFFER_SIZE = 50;
+
+    private static final int MAX_USERS = 10000;
+    private static final long MARK_READ_INTERVAL_MS = 1000;
+    private static final int MAX_MARK_READ_BATCH = 500;
+    private static final long INBOX_MAX_AGE_MS = 30 * 1000;
+
+    private static final String COUNT_SQL =
+        "SELECT COUNT(*) FROM notifications WHERE user_id = ? AND is_read = FALSE";
+    private static final String RECENT_SQL =
+        "SELECT notification_id, message, created_at, is_read FROM notifications " +
+        "WHERE user_id = ? ORDER BY notification_id DESC LIMIT ?";
+
+    private static final Map<Integer, Inbox> inboxes = Collections.synchronizedMap(
+        new LinkedHashMap<Integer, Inbox>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Inbox> eldest) {
+                return size() > MAX_USERS;
+            }
+        });
+
+    private static final ConcurrentLinkedQueue<Long> pendingRead = new ConcurrentLinkedQueue<>();
+    private static final Object flushLock = new Object();
+    private static ScheduledExecutorService flusher;
+
+    // Statistics
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong loads = new AtomicLong();
+
+    private NotificationHub() {}
+
+    /**
+     * One user's buffer, oldest first. Guarded by its own monitor; the first
+     * caller loads it while later ones wait.
+     */
+    private static final class Inbox {
+        final int userId;
+        final List<Notification> recent = new ArrayList<>(BUFFER_SIZE + 1);
+        long unread;
+        int unreadInBuffer;
+        // Rows up to this id were covered by the last load
+        long loadedUpTo;
+        long loadedAt;
+        boolean loaded;
+
+        Inbox(int userId) {
+            this.userId = userId;
+        }
+
+        void add(Notification n) {
+            int pos = recent.size();
+            while (pos > 0 && recent.get(pos - 1).getId() > n.getId()) {
+                pos--;
+            }
+            if (pos > 0 && recent.get(pos - 1).getId() == n.getId()) return;
+            recent.add(pos, n);
+            if (!n.isRead()) {
+                unread++;
+                unreadInBuffer++;
+            }
+            if (recent.size() > BUFFER_SIZE) {
+                Notification dropped = recent.remove(0);
+                if (!dropped.isRead()) {
+                    // Still counted in unread, just no longer in memory
+                    unreadInBuffer--;
+                }
+            }
+        }
+
+        /**
+         * @return whether the id was unread and is now read
+         */
+        boolean markRead(long id) {
+            for (Notification n : recent) {
+                if (n.getId() == id) {
+                    if (n.isRead()) return false;
+                    n.setRead(true);
+                    unreadInBuffer--;
+                    unread--;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean complete() {
+            // Every unread notification is in the buffer
+            return unreadInBuffer == unread;
+        }
+    }
+
+    // ================= QUERIES =================
+
+    public static long unreadCount(int userId) throws SQLException {
+        Inbox inbox = load(userId);
+        synchronized (inbox) {
+            hits.incrementAndGet();
+            return inbox.unread;
+        }
+    }
+
+    /**
+     * Up to {@code limit} of the most recent notifications, read or not,
+     * newest first. Nothing is marked read.
+     */
+    public static List<Notification> recent(int userId, int limit) throws SQLException {
+        Inbox inbox = load(userId);
+        synchronized (inbox) {
+            hits.incrementAndGet();
+            List<Notification> result = new ArrayList<>(Math.min(limit, inbox.recent.size()));
+            for (int i = inbox.recent.size() - 1; i >= 0 && result.size() < limit; i--) {
+                result.add(copy(inbox.recent.get(i)));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Same contract as {@link NotificationInbox#fetchUnread}, answered from
+     * memory. Returns null when some unread notifications are older than the
+     * buffer, in which case the caller has to read the table.
+     */
+    static NotificationInbox.Page fetchUnread(int userId, long cursor, int pageSize, boolean markRead)
+            throws SQLException {
+        Inbox inbox = load(userId);
+        synchronized (inbox) {
+            if (!inbox.complete()) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+
+            List<Notification> batch = new ArrayList<>();
+            boolean hasMore = false;
+            for (Notification n : inbox.recent) {
+                if (n.isRead() || n.getId() <= cursor) continue;
+                if (batch.size() == pageSize) {
+                    hasMore = true;
+                    break;
+                }
+                batch.add(copy(n));
+            }
+            if (markRead) {
+                for (Notification n : batch) {
+                    if (inbox.markRead(n.getId())) {
+                        pendingRead.add(n.getId());
+                    }
+                }
+                ensureFlusher();
+            }
+            long nextCursor = batch.isEmpty() ? Math.max(0, cursor) : batch.get(batch.size() - 1).getId();
+            return new NotificationInbox.Page(Collections.unmodifiableList(batch), nextCursor, hasMore);
+        }
+    }
+
+    // ================= UPDATES =================
+
+    /**
+     * Called by NotificationDispatcher once a notification row is stored.
+     * Users whose inbox is not loaded are skipped; they are read from the
+     * table when first asked for.
+     */
+    public static void added(Notification notification) {
+        Inbox inbox = inboxes.get(notification.getUserId());
+        if (inbox == null) return;
+        synchronized (inbox) {
+            // An inbox that was loading when the row was written may already have it
+            if (!inbox.loaded || notification.getId() <= inbox.loadedUpTo) return;
+            inbox.add(copy(notification));
+        }
+    }
+
+    /**
+     * Marks notifications read in memory now and in the table shortly after.
+     */
+    public static void markRead(int userId, Collection<Long> ids) {
+        // Queued first, so a reload that starts before the memory update flushes them
+        pendingRead.addAll(ids);
+        Inbox inbox = inboxes.get(userId);
+        if (inbox != null) {
+            synchronized (inbox) {
+                for (long id : ids) {
+                    inbox.markRead(id);
+                }
+            }
+        }
+        ensureFlusher();
+    }
+
+    /**
+     * Records rows the table path has already marked read. Ids not in the
+     * buffer are older unread ones, which still count towards the total.
+     */
+    static void markedReadInTable(int userId, Collection<Long> ids) {
+        Inbox inbox = inboxes.get(userId);
+        if (inbox == null) return;
+        synchronized (inbox) {
+            for (long id : ids) {
+                if (!inbox.markRead(id) && !inBuffer(inbox, id) && inbox.unread > inbox.unreadInBuffer) {
+                    inbox.unread--;
+                }
+            }
+        }
+    }
+
+    private static boolean inBuffer(Inbox inbox, long id) {
+        for (Notification n : inbox.recent) {
+            if (n.getId() == id) return true;
+        }
+        return false;
+    }
+
+    // ================= LOADING =================
+
+    private static Inbox load(int userId) throws SQLException {
+        Inbox inbox;
+        synchronized (inboxes) {
+            inbox = inboxes.computeIfAbsent(userId, Inbox::new);
+        }
+        synchronized (inbox) {
+            if (!inbox.loaded || System.currentTimeMillis() - inbox.loadedAt > INBOX_MAX_AGE_MS) {
+                hydrate(inbox);
+            }
+        }
+        return inbox;
+    }
+
+    private static void hydrate(Inbox inbox) throws SQLException {
+        // Reads marked in memory must reach the table before it is counted
+        flushReads();
+        loads.incrementAndGet();
+
+        List<Notification> rows = new ArrayList<>(BUFFER_SIZE);
+        long unread = 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(COUNT_SQL)) {
+                stmt.setInt(1, inbox.userId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        unread = rs.getLong(1);
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(RECENT_SQL)) {
+                stmt.setInt(1, inbox.userId);
+                stmt.setInt(2, BUFFER_SIZE);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Timestamp created = rs.getTimestamp("created_at");
+                        Notification n = new Notification(rs.getLong("notification_id"), inbox.userId,
+                            rs.getString("message"), created != null ? created.getTime() : 0L);
+                        n.setRead(rs.getBoolean("is_read"));
+                        rows.add(n);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            // Leave nothing half-loaded behind; the next call tries again
+            inboxes.remove(inbox.userId);
+            throw e;
+        }
+
+        inbox.recent.clear();
+        inbox.unreadInBuffer = 0;
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            Notification n = rows.get(i);
+            inbox.recent.add(n);
+            if (!n.isRead()) inbox.unreadInBuffer++;
+        }
+        // Rows written between the two queries can make the count lag the list
+        inbox.unread = Math.max(unread, inbox.unreadInBuffer);
+        inbox.loadedUpTo = rows.isEmpty() ? 0 : rows.get(0).getId();
+        inbox.loadedAt = System.currentTimeMillis();
+        inbox.loaded = true;
+    }
+
+    private static Notification copy(Notification n) {
+        // Callers serialize or hand these out; the buffer keeps its own instances
+        Notification c = new Notification(n.getId(), n.getUserId(), n.getMessage(), n.getCreatedAt());
+        c.setRead(n.isRead());
+        return c;
+    }
+
+    // ================= WRITE-BEHIND =================
+
+    /**
+     * Writes every queued read mark to the table. A caller that needs the
+     * table current waits for a flush already in progress.
+     */
+    static void flushReads() {
+        synchronized (flushLock) {
+            flushReadsLocked();
+        }
+    }
+
+    private static void flushReadsLocked() {
+        List<Long> ids = new ArrayList<>(MAX_MARK_READ_BATCH);
+        while (!pendingRead.isEmpty()) {
+            ids.clear();
+            Long id;
+            while (ids.size() < MAX_MARK_READ_BATCH && (id = pendingRead.poll()) != null) {
+                ids.add(id);
+            }
+            if (ids.isEmpty()) return;
+
+            StringBuilder sql = new StringBuilder(
+                "UPDATE notifications SET is_read = TRUE WHERE notification_id IN (");
+            for (int i = 0; i < ids.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(")");
+
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < ids.size(); i++) {
+                    stmt.setLong(i + 1, ids.get(i));
+                }
+                stmt.executeUpdate();
+            } catch (SQLException e) {
+                // Keep them for the next run rather than losing the read state
+                System.err.println("Could not mark " + ids.size() + " notifications read: " + e.getMessage());
+                pendingRead.addAll(ids);
+                return;
+            }
+        }
+    }
+
+    private static void scheduledFlush() {
+        try {
+            flushReads();
+        } catch (RuntimeException e) {
+            // Never let the scheduled task die
+            System.err.println("Notification mark-read task failed: " + e.getMessage());
+        }
+    }
+
+    private static synchronized void ensureFlusher() {
+        if (flusher != null) return;
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "notification-read-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(NotificationHub::scheduledFlush,
+            MARK_READ_INTERVAL_MS, MARK_READ_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes outstanding read marks and drops every inbox. Called when the
+     * web application stops, before the pool is closed.
+     */
+    public static void shutdown() {
+        ScheduledExecutorService current;
+        synchronized (NotificationHub.class) {
+            current = flusher;
+            flusher = null;
+        }
+        if (current != null) {
+            current.shutdownNow();
+        }
+        flushReads();
+        inboxes.clear();
+    }
+
+    public static Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("users", inboxes.size());
+        stats.put("bufferSize", BUFFER_SIZE);
+        stats.put("memoryHits", hits.get());
+        stats.put("tableFallbacks", misses.get());
+        stats.put("loads", loads.get());
+        stats.put("pendingMarkRead", pendingRead.size());
+        return stats;
+    }
+}
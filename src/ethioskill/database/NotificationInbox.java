@@ -0,0 +1,140 @@
+package ethioskill.database;
+
+import ethioskill.models.Notification;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads unread notifications in bounded, cursor-addressed batches.
+ *
+ * A batch is selected with FOR UPDATE and marked read with one set-based
+ * UPDATE inside the same transaction, so a poll costs two statements no matter
+ * how many notifications are waiting, and two tabs polling at once can't both
+ * receive the same row. Users whose unread notifications all fit in
+ * {@link NotificationHub}'s buffer are answered from memory instead.
+ */
+public class NotificationInbox {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 100;
+
+    private static final String SELECT_SQL =
+        "SELECT notification_id, message, created_at FROM notifications " +
+        "WHERE user_id = ? AND is_read = FALSE AND notification_id > ? " +
+        "ORDER BY notification_id LIMIT ?";
+
+    /**
+     * One batch of notifications plus the cursor for the next one.
+     */
+    public static class Page {
+        private final List<Notification> notifications;
+        private final long nextCursor;
+        private final boolean hasMore;
+
+        public Page(List<Notification> notifications, long nextCursor, boolean hasMore) {
+            this.notifications = notifications;
+            this.nextCursor = nextCursor;
+            this.hasMore = hasMore;
+        }
+
+        public List<Notification> getNotifications() { return notifications; }
+        public long getNextCursor() { return nextCursor; }
+        public boolean isHasMore() { return hasMore; }
+    }
+
+    /**
+     * Clamps a client-supplied page size into [1, MAX_LIMIT].
+     */
+    public static int clampLimit(int requested) {
+        if (requested <= 0) return DEFAULT_LIMIT;
+        return Math.min(requested, MAX_LIMIT);
+    }
+
+    /**
+     * Returns unread notifications with an id greater than {@code cursor}, oldest first.
+     *
+     * @param userId   owner of the notifications
+     * @param cursor   last id the client has seen (0 to start from the beginning)
+     * @param limit    page size, clamped to MAX_LIMIT
+     * @param markRead whether the returned rows should be marked read
+     */
+    public static Page fetchUnread(int userId, long cursor, int limit, boolean markRead) throws SQLException {
+        int pageSize = clampLimit(limit);
+        Page cached = NotificationHub.fetchUnread(userId, cursor, pageSize, markRead);
+        if (cached != null) {
+            return cached;
+        }
+        // Rows already read in memory must not come back from the table as unread
+        NotificationHub.flushReads();
+        
+        List<Notification> batch = new ArrayList<>();
+        boolean hasMore = false;
+
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                String sql = markRead ? SELECT_SQL + " FOR UPDATE" : SELECT_SQL;
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setInt(1, userId);
+                    stmt.setLong(2, Math.max(0, cursor));
+                    // One extra row tells us whether another page exists
+                    stmt.setInt(3, pageSize + 1);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            if (batch.size() == pageSize) {
+                                hasMore = true;
+                                break;
+                            }
+                            Timestamp created = rs.getTimestamp("created_at");
+                            batch.add(new Notification(
+                                rs.getLong("notification_id"), userId, rs.getString("message"),
+                                created != null ? created.getTime() : 0L));
+                        }
+                    }
+                }
+
+                if (markRead && !batch.isEmpty()) {
+                    markRead(conn, userId, batch);
+                }
+                conn.commit();
+                if (markRead && !batch.isEmpty()) {
+                    List<Long> ids = new ArrayList<>(batch.size());
+                    for (Notification n : batch) {
+                        ids.add(n.getId());
+                    }
+                    NotificationHub.markedReadInTable(userId, ids);
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        long nextCursor = batch.isEmpty() ? Math.max(0, cursor) : batch.get(batch.size() - 1).getId();
+        return new Page(Collections.unmodifiableList(batch), nextCursor, hasMore);
+    }
+
+    private static void markRead(Connection conn, int userId, List<Notification> batch) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+            "UPDATE notifications SET is_read = TRUE WHERE user_id = ? AND notification_id IN (");
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            stmt.setInt(1, userId);
+            for (int i = 0; i < batch.size(); i++) {
+                stmt.setLong(i + 2, batch.get(i).getId());
+            }
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package ethioskill.database;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-through cache for a small, rarely changing list (cities, skills).
+ *
+ * Readers get an immutable snapshot without touching the database. Writers
+ * call invalidate() after a successful change and bump the data version
+ * themselves; the TTL is only a backstop for edits made directly in MySQL, so
+ * a TTL reload that finds different values bumps the version on their behalf.
+ *
+ * One caller reloads at a time while the others keep the old values. If the
+ * database cannot be reached the old values stay in place for RETRY_MS, so an
+ * outage costs one failed query per interval rather than one per request.
+ */
+class ReferenceCache {
+
+    private static final long RETRY_MS = 10 * 1000;
+
+    interface Loader {
+        List<String> load() throws SQLException;
+    }
+
+    private static final class Snapshot {
+        final List<String> values;
+        final long expiresAt;
+        final boolean invalidated; // by a writer, who has bumped the version already
+
+        Snapshot(List<String> values, long expiresAt, boolean invalidated) {
+            this.values = values;
+            this.expiresAt = expiresAt;
+            this.invalidated = invalidated;
+        }
+    }
+
+    private final String name;
+    private final DataVersions.Domain domain;
+    private final Loader loader;
+    private final long ttlMs;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    ReferenceCache(String name, DataVersions.Domain domain, long ttlMs, Loader loader) {
+        this.name = name;
+        this.domain = domain;
+        this.ttlMs = ttlMs;
+        this.loader = loader;
+    }
+
+    List<String> get() {
+        Snapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() < current.expiresAt) {
+            return current.values;
+        }
+        // Only the very first load makes callers wait for each other
+        if (current == null) {
+            reloadLock.lock();
+        } else if (!reloadLock.tryLock()) {
+            return current.values;
+        }
+        try {
+            return reload(current);
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private List<String> reload(Snapshot seen) {
+        // Another thread may have refreshed while we waited for the lock
+        Snapshot current = snapshot;
+        if (current != null && current != seen && System.currentTimeMillis() < current.expiresAt) {
+            return current.values;
+        }
+
+        long startGeneration = generation.get();
+        try {
+            List<String> values = Collections.unmodifiableList(loader.load());
+            // Don't publish a result that an invalidate() raced past
+            if (startGeneration == generation.get()) {
+                snapshot = new Snapshot(values, System.currentTimeMillis() + ttlMs, false);
+                if (current != null && !current.invalidated && !current.values.equals(values)) {
+                    DataVersions.bump(domain);
+                }
+            }
+            return values;
+        } catch (SQLException e) {
+            System.err.println("Database error loading " + name + ": " + e.getMessage());
+            e.printStackTrace();
+            if (current == null) {
+                return Collections.emptyList();
+            }
+            // Keep serving the stale copy and try the database again later
+            snapshot = new Snapshot(current.values, System.currentTimeMillis() + RETRY_MS, current.invalidated);
+            return current.values;
+        }
+    }
+
+    /**
+     * Expires the snapshot without discarding it, so readers still get the
+     * old values if the reload fails.
+     */
+    void invalidate() {
+        generation.incrementAndGet();
+        Snapshot current = snapshot;
+        if (current != null) {
+            snapshot = new Snapshot(current.values, 0, true);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package ethioskill.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revoked stateless sessions, shared between nodes through the
+ * `revoked_sessions` table.
+ *
+ * Signed session tokens cannot be taken back, so logout and user deletion
+ * add a row here instead: either one session id, or every session a user
+ * logged in before a point in time, including tokens reissued since. Each node keeps the unexpired rows in memory
+ * and polls for new ones every few seconds, so checking a token never waits
+ * on the database. A row is only needed until the longest-lived token it
+ * covers has expired, which keeps the list small.
+ *
+ * Without the table revocations still apply on the node that made them.
+ */
+public class SessionRevocations {
+
+    private static final long SYNC_INTERVAL_SEC = 5;
+    private static final long PURGE_INTERVAL_SEC = 3600;
+    // Ids can commit out of order, so each poll re-reads a few already seen rows
+    private static final long SYNC_OVERLAP = 100;
+
+    private static final String INSERT_SQL =
+        "INSERT INTO revoked_sessions (session_id, user_id, revoked_at, expires_at) VALUES (?, ?, ?, ?)";
+    private static final String SYNC_SQL =
+        "SELECT revocation_id, session_id, user_id, revoked_at, expires_at FROM revoked_sessions " +
+        "WHERE revocation_id > ? AND expires_at > ? ORDER BY revocation_id";
+    private static final String PURGE_SQL = "DELETE FROM revoked_sessions WHERE expires_at <= ?";
+
+    // session id -> expiry (epoch millis)
+    private static final Map<String, Long> sessions = new ConcurrentHashMap<>();
+    // user id -> {revoked at, expiry} (epoch millis); sessions logged in before "revoked at" are dead
+    private static final Map<Integer, long[]> users = new ConcurrentHashMap<>();
+
+    private static long lastSeenId = 0;
+    private static long lastPurge = 0;
+    private static boolean tableMissingReported = false;
+    private static ScheduledExecutorService syncer;
+
+    private SessionRevocations() {}
+
+    // ================= CHECKS (memory only) =================
+
+    public static boolean isRevoked(String sessionId, int userId, long authenticatedAt) {
+        if (sessions.containsKey(sessionId)) {
+            return true;
+        }
+        long[] user = users.get(userId);
+        return user != null && authenticatedAt <= user[0];
+    }
+
+    // ================= REVOKING =================
+
+    /**
+     * Revokes one session, for logout.
+     *
+     * @param expiresAt when the last token the session could have had expires
+     */
+    public static void revokeSession(String sessionId, long expiresAt) {
+        sessions.put(sessionId, expiresAt);
+        persist(sessionId, null, System.currentTimeMillis(), expiresAt);
+    }
+
+    /**
+     * Revokes every session the user logged in to up to now, including
+     * tokens reissued to those sessions later, for deleted users.
+     *
+     * @param expiresAt when the last token issued so far expires
+     */
+    public static void revokeUser(int userId, long expiresAt) {
+        long now = System.currentTimeMillis();
+        users.merge(userId, new long[] { now, expiresAt },
+            (old, fresh) -> new long[] { Math.max(old[0], fresh[0]), Math.max(old[1], fresh[1]) });
+        persist(null, userId, now, expiresAt);
+    }
+
+    private static void persist(String sessionId, Integer userId, long revokedAt, long expiresAt) {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            stmt.setString(1, sessionId);
+            if (userId != null) {
+                stmt.setInt(2, userId);
+            } else {
+                stmt.setNull(2, Types.INTEGER);
+            }
+            stmt.setLong(3, revokedAt);
+            stmt.setLong(4, expiresAt);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            // Still revoked on this node
+            System.err.println("Could not share session revocation: " + e.getMessage());
+        }
+    }
+
+    // ================= SYNC =================
+
+    /**
+     * Loads the current list and starts polling for revocations made on other
+     * nodes. Called at startup when stateless sessions are enabled.
+     */
+    public static synchronized void start() {
+        if (syncer != null) return;
+        sync();
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-revocation-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        syncer.scheduleWithFixedDelay(() -> {
+            try {
+                sync();
+            } catch (RuntimeException e) {
+                // Never let the scheduled task die
+                e.printStackTrace();
+            }
+        }, SYNC_INTERVAL_SEC, SYNC_INTERVAL_SEC, TimeUnit.SECONDS);
+    }
+
+    private static synchronized void sync() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(expiresAt -> expiresAt <= now);
+        users.values().removeIf(user -> user[1] <= now);
+
+        try (Connection conn = DBConnection.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(SYNC_SQL)) {
+                stmt.setLong(1, Math.max(0, lastSeenId - SYNC_OVERLAP));
+                stmt.setLong(2, now);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        lastSeenId = Math.max(lastSeenId, rs.getLong("revocation_id"));
+                        String sessionId = rs.getString("session_id");
+                        int userId = rs.getInt("user_id");
+                        boolean forUser = !rs.wasNull();
+                        long revokedAt = rs.getLong("revoked_at");
+                        long expiresAt = rs.getLong("expires_at");
+                        if (sessionId != null) {
+                            sessions.merge(sessionId, expiresAt, Math::max);
+                        }
+                        if (forUser) {
+                            users.merge(userId, new long[] { revokedAt, expiresAt },
+                                (old, fresh) -> new long[] { Math.max(old[0], fresh[0]), Math.max(old[1], fresh[1]) });
+                        }
+                    }
+                }
+            }
+
+            if (now - lastPurge >= TimeUnit.SECONDS.toMillis(PURGE_INTERVAL_SEC)) {
+                try (PreparedStatement stmt = conn.prepareStatement(PURGE_SQL)) {
+                    stmt.setLong(1, now);
+                    stmt.executeUpdate();
+                }
+                lastPurge = now;
+            }
+        } catch (SQLException e) {
+            if ("42S02".equals(e.getSQLState())) {
+                if (!tableMissingReported) {
+                    System.err.println("WARNING: revoked_sessions table is missing; " +
+                                       "logouts are only enforced on the node that made them");
+                    tableMissingReported = true;
+                }
+            } else {
+                System.err.println("Session revocation sync failed: " + e.getMessage());
+            }
+        }
+    }
+
+    public static Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("revokedSessions", sessions.size());
+        stats.put("revokedUsers", users.size());
+        return stats;
+    }
+
+    /**
+     * Stops polling. Called when the web application stops.
+     */
+    public static synchronized void shutdown() {
+        if (syncer != null) {
+            syncer.shutdownNow();
+            syncer = null;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ethioskill.database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory copy of the `settings` table.
+ *
+ * All rows are loaded once and kept as an immutable map, so flag reads on the
+ * request path are a volatile read and a map lookup. Writes through
+ * DatabaseHelper.updateSetting reload it straight away; a background check
+ * compares a cheap fingerprint of the table every 30 seconds so changes made
+ * directly in MySQL are picked up too.
+ */
+public class SettingsStore {
+
+    private static final long VERSION_CHECK_INTERVAL_SEC = 30;
+
+    private static final String LOAD_SQL = "SELECT setting_key, setting_value FROM settings";
+
+    // One-row aggregate that changes whenever any row is added, removed or edited
+    private static final String FINGERPRINT_SQL =
+        "SELECT COUNT(*), COALESCE(BIT_XOR(CRC32(CONCAT(setting_key, '=', COALESCE(setting_value, '')))), 0) " +
+        "FROM settings";
+
+    private static volatile Map<String, String> values = null;
+    private static volatile String fingerprint = null;
+    private static volatile long version = 0;
+    private static ScheduledExecutorService checker;
+
+    private SettingsStore() {}
+
+    // ================= TYPED ACCESSORS =================
+
+    public static String getString(String key, String defaultValue) {
+        String value = snapshot().get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = snapshot().get(key);
+        return value != null ? "true".equalsIgnoreCase(value.trim()) : defaultValue;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = snapshot().get(key);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return an immutable view of every setting
+     */
+    public static Map<String, String> getAll() {
+        return snapshot();
+    }
+
+    /**
+     * Incremented every time the in-memory copy changes.
+     */
+    public static long getVersion() {
+        snapshot();
+        return version;
+    }
+
+    // ================= LOADING =================
+
+    private static Map<String, String> snapshot() {
+        Map<String, String> current = values;
+        if (current == null) {
+            synchronized (SettingsStore.class) {
+                current = values;
+                if (current == null) {
+                    reload();
+                    startVersionChecker();
+                    current = values;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Re-reads the whole table. Keeps the previous copy if the database is unreachable.
+     */
+    public static synchronized void reload() {
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            Map<String, String> loaded = new HashMap<>();
+            try (ResultSet rs = stmt.executeQuery(LOAD_SQL)) {
+                while (rs.next()) {
+                    loaded.put(rs.getString("setting_key"), rs.getString("setting_value"));
+                }
+            }
+            String newFingerprint = readFingerprint(stmt);
+
+            values = Collections.unmodifiableMap(loaded);
+            fingerprint = newFingerprint;
+            version++;
+            DataVersions.bump(DataVersions.Domain.SETTINGS);
+        } catch (SQLException e) {
+            System.err.println("Database error loading settings: " + e.getMessage());
+            e.printStackTrace();
+            if (values == null) {
+                values = Collections.emptyMap();
+            }
+        }
+    }
+
+    private static String readFingerprint(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(FINGERPRINT_SQL)) {
+            return rs.next() ? rs.getLong(1) + ":" + rs.getLong(2) : "";
+        }
+    }
+
+    private static void checkForExternalChanges() {
+        String current;
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            current = readFingerprint(stmt);
+        } catch (SQLException e) {
+            System.err.println("Settings version check failed: " + e.getMessage());
+            return;
+        }
+        try {
+            if (!current.equals(fingerprint)) {
+                reload();
+            }
+        } catch (RuntimeException e) {
+            // Never let the scheduled task die
+            e.printStackTrace();
+        }
+    }
+
+    private static void startVersionChecker() {
+        if (checker != null) return;
+        checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "settings-version-check");
+            t.setDaemon(true);
+            return t;
+        });
+        checker.scheduleWithFixedDelay(SettingsStore::checkForExternalChanges,
+            VERSION_CHECK_INTERVAL_SEC, VERSION_CHECK_INTERVAL_SEC, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the background version check. Called when the web application stops.
+     */
+    public static synchronized void shutdown() {
+        if (checker != null) {
+            checker.shutdownNow();
+            checker = null;
+        }
+        values = null;
+    }
+}
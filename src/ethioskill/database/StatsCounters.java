@@ -0,0 +1,388 @@
+package ethioskill.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dashboard aggregates (user and booking totals, verified providers, cities
+ * served, bookings per skill) kept as in-memory counters.
+ *
+ * Writers report what they changed (signup, verification, profile edits,
+ * deletion, new bookings) and the counters are adjusted in place, so the
+ * dashboards read a prebuilt snapshot instead of running COUNT queries. A
+ * background job recounts everything from the database every 10 minutes and
+ * replaces the counters, which corrects any drift from writes made outside
+ * the app or from an event that was missed.
+ */
+public class StatsCounters {
+
+    private static final long RECONCILE_INTERVAL_MIN = 10;
+    private static final long RETRY_DELAY_SEC = 30;
+    private static final int MAX_DISCARDED_RECOUNTS = 3;
+    private static final int TOP_SKILLS = 5;
+
+    private static final String ROLES_SQL = "SELECT role, COUNT(*) FROM users GROUP BY role";
+    private static final String PROVIDERS_SQL =
+        "SELECT u.user_id, u.status, pd.city, pd.primary_skill FROM users u " +
+        "LEFT JOIN provider_details pd ON pd.provider_id = u.user_id WHERE u.role = 'Provider'";
+    private static final String PROVIDER_SQL =
+        "SELECT u.role, u.status, pd.city, pd.primary_skill FROM users u " +
+        "LEFT JOIN provider_details pd ON pd.provider_id = u.user_id WHERE u.user_id = ?";
+    private static final String BOOKINGS_SQL = "SELECT provider_id, COUNT(*) FROM bookings GROUP BY provider_id";
+
+    /**
+     * Immutable view handed to the dashboards.
+     */
+    public static class Snapshot {
+        private final long totalUsers;
+        private final long totalBookings;
+        private final long activeProviders;
+        private final int citiesCount;
+        private final Map<String, Long> userDistribution;
+        private final List<Map<String, Object>> topSkills;
+
+        Snapshot(long totalUsers, long totalBookings, long activeProviders, int citiesCount,
+                 Map<String, Long> userDistribution, List<Map<String, Object>> topSkills) {
+            this.totalUsers = totalUsers;
+            this.totalBookings = totalBookings;
+            this.activeProviders = activeProviders;
+            this.citiesCount = citiesCount;
+            this.userDistribution = userDistribution;
+            this.topSkills = topSkills;
+        }
+
+        public long getTotalUsers() { return totalUsers; }
+        public long getTotalBookings() { return totalBookings; }
+        public long getActiveProviders() { return activeProviders; }
+        public int getCitiesCount() { return citiesCount; }
+        public Map<String, Long> getUserDistribution() { return userDistribution; }
+        public List<Map<String, Object>> getTopSkills() { return topSkills; }
+    }
+
+    private static final class ProviderState {
+        boolean verified;
+        String city;
+        String skill;
+        long bookings;
+    }
+
+    // Mutable counters, guarded by the class lock
+    private static final class State {
+        final Map<String, Long> usersByRole = new HashMap<>();
+        final Map<Integer, ProviderState> providers = new HashMap<>();
+        final Map<String, Integer> verifiedPerCity = new HashMap<>();
+        final Map<String, Long> bookingsBySkill = new HashMap<>();
+        long totalBookings;
+        long activeProviders;
+    }
+
+    private static State state = null;
+    private static long eventCount = 0;
+    private static int discardedRecounts = 0;
+    private static volatile Snapshot snapshot = null;
+    private static ScheduledExecutorService reconciler;
+
+    private StatsCounters() {}
+
+    /**
+     * Current counters, loading them from the database on first use.
+     */
+    public static Snapshot get() throws SQLException {
+        Snapshot current = snapshot;
+        if (current == null) {
+            reconcile();
+            current = snapshot;
+            startReconciler();
+        }
+        return current;
+    }
+
+    // ================= WRITE EVENTS =================
+
+    /**
+     * A user row was inserted. Providers are re-read so their status counts.
+     */
+    public static void userAdded(int userId, String role) {
+        synchronized (StatsCounters.class) {
+            if (state == null) return;
+            state.usersByRole.merge(role, 1L, Long::sum);
+            eventCount++;
+            publish();
+        }
+        if ("Provider".equals(role)) {
+            providerChanged(userId);
+        }
+    }
+
+    /**
+     * A user row was deleted. Their bookings may be removed with them by the
+     * schema, so a recount is scheduled to pick that up.
+     */
+    public static void userRemoved(int userId, String role) {
+        synchronized (StatsCounters.class) {
+            if (state == null) return;
+            if (role != null && state.usersByRole.merge(role, -1L, Long::sum) <= 0) {
+                state.usersByRole.remove(role);
+            }
+            ProviderState old = state.providers.remove(userId);
+            if (old != null) {
+                unapply(old);
+            }
+            eventCount++;
+            publish();
+        }
+        scheduleReconcile(RETRY_DELAY_SEC);
+    }
+
+    /**
+     * A provider's status, city or skill may have changed; re-reads their row.
+     */
+    public static void providerChanged(int providerId) {
+        synchronized (StatsCounters.class) {
+            if (state == null) return;
+        }
+        ProviderState fresh = null;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(PROVIDER_SQL)) {
+            stmt.setInt(1, providerId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next() && "Provider".equals(rs.getString("role"))) {
+                    fresh = new ProviderState();
+                    fresh.verified = "Verified".equals(rs.getString("status"));
+                    fresh.city = rs.getString("city");
+                    fresh.skill = rs.getString("primary_skill");
+                }
+            }
+        } catch (SQLException e) {
+            // The next reconciliation will catch up
+            System.err.println("Could not refresh stats for provider " + providerId + ": " + e.getMessage());
+            return;
+        }
+
+        synchronized (StatsCounters.class) {
+            if (state == null) return;
+            ProviderState old = state.providers.remove(providerId);
+            if (old != null) {
+                unapply(old);
+            }
+            if (fresh != null) {
+                fresh.bookings = old != null ? old.bookings : 0;
+                state.providers.put(providerId, fresh);
+                apply(fresh);
+            }
+            eventCount++;
+            publish();
+        }
+    }
+
+    /**
+     * A booking row was inserted for this provider.
+     */
+    public static synchronized void bookingAdded(int providerId) {
+        if (state == null) return;
+        state.totalBookings++;
+        ProviderState p = state.providers.get(providerId);
+        if (p != null) {
+            p.bookings++;
+            if (p.skill != null) {
+                state.bookingsBySkill.merge(p.skill, 1L, Long::sum);
+            }
+        }
+        eventCount++;
+        publish();
+    }
+
+    // Adds a provider's contribution to the aggregates
+    private static void apply(ProviderState p) {
+        if (p.verified) {
+            state.activeProviders++;
+            if (p.city != null) {
+                state.verifiedPerCity.merge(p.city, 1, Integer::sum);
+            }
+        }
+        if (p.skill != null && p.bookings > 0) {
+            state.bookingsBySkill.merge(p.skill, p.bookings, Long::sum);
+        }
+    }
+
+    // Takes it away again (the provider's bookings stay in totalBookings)
+    private static void unapply(ProviderState p) {
+        if (p.verified) {
+            state.activeProviders--;
+            if (p.city != null && state.verifiedPerCity.merge(p.city, -1, Integer::sum) <= 0) {
+                state.verifiedPerCity.remove(p.city);
+            }
+        }
+        if (p.skill != null && p.bookings > 0 && state.bookingsBySkill.merge(p.skill, -p.bookings, Long::sum) <= 0) {
+            state.bookingsBySkill.remove(p.skill);
+        }
+    }
+
+    // Rebuilds the read-only snapshot; called with the class lock held
+    private static void publish() {
+        long totalUsers = 0;
+        for (long n : state.usersByRole.values()) {
+            totalUsers += n;
+        }
+
+        List<Map.Entry<String, Long>> skills = new ArrayList<>(state.bookingsBySkill.entrySet());
+        skills.sort((a, b) -> {
+            int cmp = Long.compare(b.getValue(), a.getValue());
+            return cmp != 0 ? cmp : a.getKey().compareTo(b.getKey());
+        });
+        List<Map<String, Object>> topSkills = new ArrayList<>();
+        for (Map.Entry<String, Long> e : skills.subList(0, Math.min(TOP_SKILLS, skills.size()))) {
+            Map<String, Object> skill = new HashMap<>();
+            skill.put("name", e.getKey());
+            skill.put("count", e.getValue());
+            topSkills.add(Collections.unmodifiableMap(skill));
+        }
+
+        snapshot = new Snapshot(totalUsers, state.totalBookings, state.activeProviders,
+            state.verifiedPerCity.size(), Collections.unmodifiableMap(new HashMap<>(state.usersByRole)),
+            Collections.unmodifiableList(topSkills));
+    }
+
+    // ================= RECONCILIATION =================
+
+    /**
+     * Recounts everything from the database and replaces the counters. If
+     * write events arrive while the recount runs, its result may already be
+     * stale, so it is thrown away and retried shortly. On a site that is busy
+     * enough to race every retry, the recount is applied anyway after
+     * MAX_DISCARDED_RECOUNTS attempts: an event it missed is off by one until
+     * the next recount, which beats never correcting drift at all.
+     */
+    public static void reconcile() throws SQLException {
+        long eventsBefore;
+        synchronized (StatsCounters.class) {
+            eventsBefore = eventCount;
+        }
+
+        State fresh = new State();
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(ROLES_SQL)) {
+                while (rs.next()) {
+                    fresh.usersByRole.put(rs.getString(1), rs.getLong(2));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(PROVIDERS_SQL)) {
+                while (rs.next()) {
+                    ProviderState p = new ProviderState();
+                    p.verified = "Verified".equals(rs.getString("status"));
+                    p.city = rs.getString("city");
+                    p.skill = rs.getString("primary_skill");
+                    fresh.providers.put(rs.getInt("user_id"), p);
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(BOOKINGS_SQL)) {
+                while (rs.next()) {
+                    long count = rs.getLong(2);
+                    fresh.totalBookings += count;
+                    ProviderState p = fresh.providers.get(rs.getInt(1));
+                    if (p != null) {
+                        p.bookings = count;
+                    }
+                }
+            }
+        }
+
+        synchronized (StatsCounters.class) {
+            if (state != null && eventCount != eventsBefore && discardedRecounts < MAX_DISCARDED_RECOUNTS) {
+                discardedRecounts++;
+                scheduleReconcile(RETRY_DELAY_SEC);
+                return;
+            }
+            discardedRecounts = 0;
+            Snapshot before = snapshot;
+            state = fresh;
+            for (ProviderState p : fresh.providers.values()) {
+                apply(p);
+            }
+            publish();
+            reportDrift(before, snapshot);
+            if (before != null && !sameCounts(before, snapshot)) {
+                // Cached dashboard stats must not revalidate against the corrected numbers
+                DataVersions.bump(DataVersions.Domain.USERS, DataVersions.Domain.PROVIDERS,
+                    DataVersions.Domain.BOOKINGS);
+            }
+        }
+    }
+
+    private static boolean sameCounts(Snapshot a, Snapshot b) {
+        return a.totalUsers == b.totalUsers && a.totalBookings == b.totalBookings &&
+            a.activeProviders == b.activeProviders && a.citiesCount == b.citiesCount &&
+            a.userDistribution.equals(b.userDistribution) && a.topSkills.equals(b.topSkills);
+    }
+
+    private static void reportDrift(Snapshot before, Snapshot after) {
+        if (before == null) return;
+        if (before.totalUsers != after.totalUsers || before.totalBookings != after.totalBookings ||
+            before.activeProviders != after.activeProviders || before.citiesCount != after.citiesCount) {
+            System.err.println("Stats counters drifted and were corrected: users " + before.totalUsers +
+                " -> " + after.totalUsers + ", bookings " + before.totalBookings + " -> " + after.totalBookings +
+                ", active providers " + before.activeProviders + " -> " + after.activeProviders +
+                ", cities " + before.citiesCount + " -> " + after.citiesCount);
+        }
+    }
+
+    private static void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (SQLException e) {
+            System.err.println("Stats reconciliation failed: " + e.getMessage());
+        } catch (RuntimeException e) {
+            // Never let the scheduled task die
+            e.printStackTrace();
+        }
+    }
+
+    private static synchronized void startReconciler() {
+        if (reconciler != null) return;
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stats-reconcile");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciler.scheduleWithFixedDelay(StatsCounters::reconcileQuietly,
+            RECONCILE_INTERVAL_MIN, RECONCILE_INTERVAL_MIN, TimeUnit.MINUTES);
+    }
+
+    private static synchronized void scheduleReconcile(long delaySec) {
+        if (reconciler != null) {
+            reconciler.schedule(StatsCounters::reconcileQuietly, delaySec, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Loads the counters and starts the periodic recount. Called at startup.
+     */
+    public static void start() throws SQLException {
+        startReconciler();
+        reconcile();
+    }
+
+    /**
+     * Stops the background recount. Called when the web application stops.
+     */
+    public static synchronized void shutdown() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+            reconciler = null;
+        }
+        state = null;
+        snapshot = null;
+    }
+}
@@ -1,30 +1,51 @@
 package ethioskill.filters;
 
 import ethioskill.models.User;
-import com.google.gson.Gson;
+import ethioskill.utils.AlertUtil;
+import ethioskill.utils.SessionTokens;
 
 import jakarta.servlet.*;
 import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
 
-@WebFilter("/*")
+@WebFilter(filterName = "AuthFilter", urlPatterns = "/*", asyncSupported = true)
 public class AuthFilter implements Filter {
     
-    // Updated public paths to include uploads directory
-    private static final String[] PUBLIC_PATHS = {
-        "/pages/login.html",
-        "/pages/signup.html",
-        "/LoginServlet",
-        "/SignupServlet",
-        "/images/",
-        "/css/",
-        "/js/",
-        "/uploads/"  // Critical: Allow access to uploaded user photos
+    // Who may reach which path. Anything not listed needs a logged-in user of any role.
+    private static final String[][] ROUTE_RULES = {
+        // Login and signup
+        { "/pages/login.html",              RouteTable.PUBLIC },
+        { "/pages/signup.html",             RouteTable.PUBLIC },
+        { "/LoginServlet",                  RouteTable.PUBLIC },
+        { "/SignupServlet",                 RouteTable.PUBLIC },
+        
+        // Static assets: served without looking at the session
+        { "/assets/*",                      RouteTable.PUBLIC }, // Fingerprinted copies of /images
+        { "/images/*",                      RouteTable.PUBLIC },
+        { "/css/*",                         RouteTable.PUBLIC },
+        { "/js/*",                          RouteTable.PUBLIC },
+        { "/uploads/*",                     RouteTable.PUBLIC }, // Critical: Allow access to uploaded user photos
+        
+        // Admin area (Servlet + HTML pages)
+        { "/AdminServlet/*",                "Admin" },
+        { "/pages/admin-dashboard.html",    "Admin" },
+        
+        // Provider area: dashboard, registration and service forms
+        { "/ProviderServlet/*",             "Provider" },
+        { "/pages/provider-dashboard.html", "Provider" },
+        { "/pages/provider-register.html",  "Provider" },
+        { "/pages/service-form.html",       "Provider" },
+        
+        // Seeker area: dashboard and booking forms
+        { "/SeekerServlet/*",               "Seeker" },
+        { "/pages/seeker-dashboard.html",   "Seeker" },
+        { "/pages/booking-form.html",       "Seeker" }
     };
     
+    private static final RouteTable ROUTES = RouteTable.compile(ROUTE_RULES);
+    
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {}
     
@@ -34,104 +55,68 @@ public class AuthFilter implements Filter {
         
         HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
-        HttpSession session = httpRequest.getSession(false);
         
-        String path = httpRequest.getRequestURI().substring(httpRequest.getContextPath().length());
+        String path = routePath(httpRequest);
+        RouteTable.Rule rule = ROUTES.lookup(path);
         
         // Set security headers
         httpResponse.setHeader("X-Content-Type-Options", "nosniff");
         httpResponse.setHeader("X-Frame-Options", "DENY");
         httpResponse.setHeader("X-XSS-Protection", "1; mode=block");
         
-        // Regenerate session ID to prevent session fixation on login
-        if (session != null && httpRequest.getRequestURL().toString().contains("LoginServlet")) {
-            // Note: Session invalidation is typically handled inside the LoginServlet logic,
-            // but ensuring a clean session state here is good practice.
-        }
-        
-        // Check if path is public
-        if (isPublicPath(path)) {
+        // Public pages and assets never touch the session
+        if (rule.isPublic()) {
             chain.doFilter(request, response);
             return;
         }
         
-        // Check if user is logged in
-        if (session == null || session.getAttribute("user") == null) {
-            handleUnauthorized(httpRequest, httpResponse, "Authentication required");
+        // Check if user is logged in (session attribute, or signed token in stateless mode)
+        User user = SessionTokens.authenticate(httpRequest, httpResponse);
+        if (user == null) {
+            handleUnauthorized(httpRequest, httpResponse, path, "Authentication required");
             return;
         }
         
-        User user = (User) session.getAttribute("user");
-        
         // Role-based access control
-        if (!hasAccess(user.getRole(), path)) {
-            handleForbidden(httpRequest, httpResponse, "Access denied");
+        if (!rule.allows(user.getRole())) {
+            handleForbidden(httpRequest, httpResponse, path, "Access denied");
             return;
         }
         
         chain.doFilter(request, response);
     }
     
-    private boolean isPublicPath(String path) {
-        for (String publicPath : PUBLIC_PATHS) {
-            if (path.startsWith(publicPath)) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * Context-relative path as the container mapped it: decoded, with path
+     * parameters such as ;jsessionid removed and dot segments resolved, so
+     * /images/../pages/admin-dashboard.html is judged as the admin page.
+     */
+    static String routePath(HttpServletRequest request) {
+        String servletPath = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        return pathInfo == null ? servletPath : servletPath + pathInfo;
     }
     
-    private boolean hasAccess(String role, String path) {
-        // 1. Admin Area Protection (Servlet + HTML pages)
-        if ((path.startsWith("/AdminServlet") || path.contains("admin-dashboard")) 
-            && !"Admin".equals(role)) {
-            return false;
-        }
-        
-        // 2. Provider Area Protection (Servlet + HTML pages)
-        // Checks for dashboard, registration, and service forms
-        if ((path.startsWith("/ProviderServlet") || 
-             path.contains("provider-dashboard") || 
-             path.contains("provider-register") || 
-             path.contains("service-form")) 
-            && !"Provider".equals(role)) {
-            return false;
-        }
-        
-        // 3. Seeker Area Protection (Servlet + HTML pages)
-        // Checks for dashboard and booking forms
-        if ((path.startsWith("/SeekerServlet") || 
-             path.contains("seeker-dashboard") || 
-             path.contains("booking-form")) 
-            && !"Seeker".equals(role)) {
-            return false;
-        }
-        
-        return true;
-    }
-    
-    private void handleUnauthorized(HttpServletRequest request, HttpServletResponse response, String message) throws IOException {
-        String path = request.getRequestURI().substring(request.getContextPath().length());
-        
+    private void handleUnauthorized(HttpServletRequest request, HttpServletResponse response, String path,
+            String message) throws IOException {
         // If API call (AJAX), return JSON
         if (path.startsWith("/") && (path.endsWith("Servlet") || path.contains("api"))) {
             response.setContentType("application/json");
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-            response.getWriter().write(new Gson().toJson(new Response(false, message)));
+            response.getWriter().write(AlertUtil.GSON.toJson(new Response(false, message)));
         } else {
             // If Page request, redirect to login
             response.sendRedirect(request.getContextPath() + "/pages/login.html");
         }
     }
 
-    private void handleForbidden(HttpServletRequest request, HttpServletResponse response, String message) throws IOException {
-        String path = request.getRequestURI().substring(request.getContextPath().length());
-
+    private void handleForbidden(HttpServletRequest request, HttpServletResponse response, String path,
+            String message) throws IOException {
         // If API call (AJAX), return JSON
         if (path.startsWith("/") && (path.endsWith("Servlet") || path.contains("api"))) {
             response.setContentType("application/json");
             response.setStatus(HttpServletResponse.SC_FORBIDDEN);
-            response.getWriter().write(new Gson().toJson(new Response(false, message)));
+            response.getWriter().write(AlertUtil.GSON.toJson(new Response(false, message)));
         } else {
             // If Page request, redirect to login (or an error page)
             response.sendRedirect(request.getContextPath() + "/pages/login.html");
@@ -0,0 +1,240 @@
+package ethioskill.filters;
+
+import jakarta.servlet.*;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses responses for clients that send Accept-Encoding: gzip.
+ *
+ * Static files outside AssetServlet's paths (scripts, stylesheets, SVG and
+ * any HTML kept elsewhere) are gzipped once and served from memory until the
+ * file on disk changes. A pre-built ".br" file next to the original is
+ * preferred for clients that accept brotli (the JDK has no brotli encoder,
+ * so those are produced at build time, not here). Servlet output is gzipped
+ * on the fly once it passes MIN_COMPRESS_SIZE bytes. Images and other
+ * already-compressed formats are passed through untouched.
+ *
+ * /pages, /images and /assets are owned by AssetServlet and skipped here:
+ * it precompresses the pages itself, after rewriting their image links, and
+ * serves them gzipped or plain with an ETag. Pages therefore get gzip only;
+ * a ".br" file next to a page is not used.
+ */
+@WebFilter(filterName = "CompressionFilter", urlPatterns = "/*", asyncSupported = true)
+public class CompressionFilter implements Filter {
+
+    // Below this a gzip header plus deflate overhead is not worth it
+    private static final int MIN_COMPRESS_SIZE = 1024;
+
+    private static final String[] STATIC_TEXT_EXTENSIONS = { ".html", ".css", ".js", ".svg" };
+
+    private static final String[] COMPRESSED_EXTENSIONS = {
+        ".jpg", ".jpeg", ".png", ".gif", ".webp", ".ico",
+        ".zip", ".gz", ".br", ".pdf", ".mp4", ".woff", ".woff2"
+    };
+
+    // Owned by AssetServlet, which keeps its own gzipped copies of the pages
+    private static final String[] SELF_ENCODED_PREFIXES = { "/assets/", "/images/", "/pages/" };
+
+    private final Map<String, CachedFile> staticCache = new ConcurrentHashMap<>();
+    private ServletContext context;
+
+    private static final class CachedFile {
+        final long lastModified;
+        final byte[] gzipped;
+
+        CachedFile(long lastModified, byte[] gzipped) {
+            this.lastModified = lastModified;
+            this.gzipped = gzipped;
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        context = filterConfig.getServletContext();
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        String path = httpRequest.getRequestURI().substring(httpRequest.getContextPath().length());
+        String lowerPath = path.toLowerCase(Locale.ROOT);
+
+        if (hasExtension(lowerPath, COMPRESSED_EXTENSIONS) || isEventStream(httpRequest)
+                || hasPrefix(path, SELF_ENCODED_PREFIXES)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        // The body differs by Accept-Encoding, so caches must key on it
+        httpResponse.addHeader("Vary", "Accept-Encoding");
+
+        String acceptEncoding = httpRequest.getHeader("Accept-Encoding");
+        boolean gzip = accepts(acceptEncoding, "gzip");
+        boolean brotli = accepts(acceptEncoding, "br");
+        if (!gzip && !brotli) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if ("GET".equals(httpRequest.getMethod()) && hasExtension(lowerPath, STATIC_TEXT_EXTENSIONS)
+                && serveStatic(httpRequest, httpResponse, path, gzip, brotli)) {
+            return;
+        }
+
+        if (!gzip) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        GzipResponseWrapper wrapper = new GzipResponseWrapper(httpResponse, MIN_COMPRESS_SIZE);
+        chain.doFilter(request, wrapper);
+        if (!request.isAsyncStarted()) {
+            wrapper.finish();
+        }
+    }
+
+    /**
+     * Serves a precompressed copy of a static file. Returns false if the file
+     * does not exist on disk, so the container's default servlet can handle it.
+     */
+    private boolean serveStatic(HttpServletRequest request, HttpServletResponse response,
+                                String path, boolean gzip, boolean brotli) throws IOException {
+        String realPath = context.getRealPath(path);
+        if (realPath == null) {
+            return false;
+        }
+        File file = new File(realPath);
+        if (!file.isFile()) {
+            return false;
+        }
+
+        long lastModified = file.lastModified();
+        long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+        response.setDateHeader("Last-Modified", lastModified);
+        String contentType = context.getMimeType(path);
+        if (contentType != null) {
+            response.setContentType(contentType.startsWith("text/") ? contentType + ";charset=UTF-8" : contentType);
+        }
+
+        // HTTP dates have one-second resolution
+        if (ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+
+        File brFile = new File(realPath + ".br");
+        if (brotli && brFile.isFile() && brFile.lastModified() >= lastModified) {
+            byte[] body = Files.readAllBytes(brFile.toPath());
+            response.setHeader("Content-Encoding", "br");
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+            return true;
+        }
+
+        if (!gzip) {
+            return false;
+        }
+
+        CachedFile cached = staticCache.get(path);
+        if (cached == null || cached.lastModified != lastModified) {
+            cached = new CachedFile(lastModified, gzip(Files.readAllBytes(file.toPath())));
+            staticCache.put(path, cached);
+        }
+        response.setHeader("Content-Encoding", "gzip");
+        response.setContentLength(cached.gzipped.length);
+        response.getOutputStream().write(cached.gzipped);
+        return true;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Whether a response with this Content-Type is worth compressing.
+     */
+    public static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith("text/event-stream")) {
+            return false;
+        }
+        return type.startsWith("text/") ||
+               type.startsWith("application/json") ||
+               type.startsWith("application/javascript") ||
+               type.startsWith("application/xml") ||
+               type.startsWith("image/svg+xml");
+    }
+
+    // Server-sent events must reach the client as they are written
+    private static boolean isEventStream(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        return accept != null && accept.contains("text/event-stream");
+    }
+
+    public static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.trim().split(";");
+            if (!params[0].trim().equalsIgnoreCase(coding)) {
+                continue;
+            }
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean hasPrefix(String path, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasExtension(String path, String[] extensions) {
+        for (String ext : extensions) {
+            if (path.endsWith(ext)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void destroy() {
+        staticCache.clear();
+    }
+}
@@ -0,0 +1,247 @@
+package ethioskill.filters;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response wrapper that gzips the body once it grows past a threshold.
+ *
+ * The first {@code threshold} bytes are held back. If the response ends
+ * before that, it is sent as-is (compressing tiny bodies costs more than it
+ * saves). Otherwise, or if the servlet calls flushBuffer() to start a
+ * download early, the content type is checked and the rest of the body
+ * goes through gzip. A servlet that switches to non-blocking output with
+ * setWriteListener gets the rest of its body sent uncompressed.
+ */
+public class GzipResponseWrapper extends HttpServletResponseWrapper {
+
+    private final int threshold;
+    private CompressingStream stream;
+    private PrintWriter writer;
+    private long declaredLength = -1;
+
+    public GzipResponseWrapper(HttpServletResponse response, int threshold) {
+        super(response);
+        this.threshold = threshold;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        return stream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (stream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+            writer = new PrintWriter(new OutputStreamWriter(stream(), charset));
+        }
+        return writer;
+    }
+
+    private CompressingStream stream() {
+        if (stream == null) {
+            stream = new CompressingStream();
+        }
+        return stream;
+    }
+
+    // Content-Length is only known for the uncompressed body; hold it until we decide
+    @Override
+    public void setContentLength(int len) {
+        declaredLength = len;
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        declaredLength = len;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            declaredLength = value != null ? Long.parseLong(value) : -1;
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (stream != null) {
+            // Caller wants bytes on the wire now: decide without waiting for the threshold
+            stream.commit();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        stream = null;
+        writer = null;
+        declaredLength = -1;
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (stream != null && stream.target == null) {
+            stream.buffer.reset();
+        }
+    }
+
+    /**
+     * Writes any held-back bytes and ends the gzip stream. Called by the filter
+     * after the chain returns.
+     */
+    public void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (stream != null) {
+            stream.finish();
+        } else if (declaredLength >= 0) {
+            super.setContentLengthLong(declaredLength);
+        }
+    }
+
+    private boolean shouldCompress() {
+        if (getResponse().isCommitted() || getHeader("Content-Encoding") != null) {
+            return false;
+        }
+        int status = getStatus();
+        if (status == SC_NO_CONTENT || status == SC_NOT_MODIFIED || status < 200) {
+            return false;
+        }
+        return CompressionFilter.isCompressible(getContentType());
+    }
+
+    private class CompressingStream extends ServletOutputStream {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        OutputStream target;
+        private boolean finished;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (target != null) {
+                target.write(b);
+                return;
+            }
+            buffer.write(b);
+            if (buffer.size() >= threshold) {
+                switchTo(shouldCompress());
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (target != null) {
+                target.write(b, off, len);
+                return;
+            }
+            buffer.write(b, off, len);
+            if (buffer.size() >= threshold) {
+                switchTo(shouldCompress());
+            }
+        }
+
+        private void switchTo(boolean compress) throws IOException {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            if (compress) {
+                response.setHeader("Content-Encoding", "gzip");
+                // syncFlush so an explicit flush() actually reaches the client
+                target = new GZIPOutputStream(response.getOutputStream(), 8192, true);
+            } else {
+                if (declaredLength >= 0) {
+                    response.setContentLengthLong(declaredLength);
+                }
+                target = response.getOutputStream();
+            }
+            buffer.writeTo(target);
+            buffer.reset();
+        }
+
+        // A plain flush (JsonWriter and PrintWriter do this a lot) keeps buffering
+        // below the threshold; only flushBuffer() forces the decision early.
+        @Override
+        public void flush() throws IOException {
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+        void commit() throws IOException {
+            if (target == null && buffer.size() > 0) {
+                switchTo(shouldCompress());
+            }
+            flush();
+        }
+
+        void finish() throws IOException {
+            if (finished) return;
+            finished = true;
+            if (target == null) {
+                // Small body: send it uncompressed with an exact length
+                HttpServletResponse response = (HttpServletResponse) getResponse();
+                response.setContentLength(buffer.size());
+                buffer.writeTo(response.getOutputStream());
+            } else if (target instanceof GZIPOutputStream) {
+                ((GZIPOutputStream) target).finish();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        @Override
+        public boolean isReady() {
+            return target instanceof ServletOutputStream ? ((ServletOutputStream) target).isReady() : true;
+        }
+
+        /**
+         * Non-blocking output can't go through gzip (the deflater decides on its
+         * own when to write), so from here on the body is sent uncompressed
+         * straight to the container's stream, which takes over the listener.
+         */
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            if (target instanceof GZIPOutputStream) {
+                throw new IllegalStateException("Response is already being compressed; " +
+                                                "set the WriteListener before writing more than " + threshold + " bytes");
+            }
+            if (target == null) {
+                // Still in blocking mode, so the held-back bytes can go out now
+                try {
+                    switchTo(false);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            ((ServletOutputStream) target).setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package ethioskill.filters;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Access rules for request paths, compiled once into a trie over path
+ * segments so a lookup costs one map probe per segment no matter how many
+ * rules there are.
+ *
+ * Rules are given as {pattern, access} pairs. A pattern is either an exact
+ * path ({@code /pages/login.html}) or a subtree ({@code /images/*}), which
+ * covers the directory and everything below it. Access is {@code PUBLIC} or
+ * the name of the role allowed in. An exact rule wins over a subtree rule,
+ * and a deeper subtree wins over a shallower one. Paths no rule covers
+ * require a logged-in user of any role.
+ */
+public final class RouteTable {
+
+    public static final String PUBLIC = "PUBLIC";
+
+    public static final class Rule {
+        private final String pattern;
+        private final String role; // null: any logged-in user
+        private final boolean publicRoute;
+
+        private Rule(String pattern, String role, boolean publicRoute) {
+            this.pattern = pattern;
+            this.role = role;
+            this.publicRoute = publicRoute;
+        }
+
+        /** No session needed at all. */
+        public boolean isPublic() {
+            return publicRoute;
+        }
+
+        public boolean allows(String userRole) {
+            return publicRoute || role == null || role.equals(userRole);
+        }
+
+        public String getPattern() {
+            return pattern;
+        }
+
+        public String getRole() {
+            return role;
+        }
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        Rule exact;
+        Rule subtree;
+    }
+
+    private final Node root = new Node();
+    private final Rule fallback = new Rule("(default)", null, false);
+
+    private RouteTable() {}
+
+    /**
+     * @throws IllegalArgumentException for a malformed or duplicate rule
+     */
+    public static RouteTable compile(String[][] rules) {
+        RouteTable table = new RouteTable();
+        for (String[] rule : rules) {
+            if (rule.length != 2 || rule[0] == null || !rule[0].startsWith("/") || rule[1] == null) {
+                throw new IllegalArgumentException("Route rule must be {\"/path\", access}");
+            }
+            table.add(rule[0], rule[1]);
+        }
+        return table;
+    }
+
+    private void add(String pattern, String access) {
+        boolean subtree = pattern.endsWith("/*");
+        String path = subtree ? pattern.substring(0, pattern.length() - 2) : pattern;
+        Rule rule = PUBLIC.equals(access)
+            ? new Rule(pattern, null, true)
+            : new Rule(pattern, access, false);
+
+        Node node = root;
+        if (path.length() > 1) { // "/" and "/*" attach to the root
+            for (String segment : path.substring(1).split("/", -1)) {
+                node = node.children.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+
+        if (subtree) {
+            if (node.subtree != null) throw new IllegalArgumentException("Duplicate route rule: " + pattern);
+            node.subtree = rule;
+        } else {
+            if (node.exact != null) throw new IllegalArgumentException("Duplicate route rule: " + pattern);
+            node.exact = rule;
+        }
+    }
+
+    /**
+     * Finds the rule for a context-relative, already normalised path such as
+     * {@code /pages/login.html}.
+     */
+    public Rule lookup(String path) {
+        Rule match = root.subtree;
+        Node node = root;
+        int length = path.length();
+        int pos = path.startsWith("/") ? 1 : 0;
+
+        if (length <= 1) {
+            return root.exact != null ? root.exact : (match != null ? match : fallback);
+        }
+
+        while (true) {
+            int end = path.indexOf('/', pos);
+            if (end < 0) end = length;
+
+            node = node.children.get(path.substring(pos, end));
+            if (node == null) break;
+            if (end == length) {
+                if (node.exact != null) return node.exact;
+                if (node.subtree != null) match = node.subtree;
+                break;
+            }
+            if (node.subtree != null) match = node.subtree;
+            pos = end + 1;
+        }
+        return match != null ? match : fallback;
+    }
+}
@@ -0,0 +1,79 @@
+package ethioskill.listeners;
+
+import ethioskill.database.DBConnection;
+import ethioskill.database.NotificationDispatcher;
+import ethioskill.database.NotificationHub;
+import ethioskill.database.SessionRevocations;
+import ethioskill.database.SettingsStore;
+import ethioskill.database.StatsCounters;
+import ethioskill.push.NotificationStreams;
+import ethioskill.reports.ReportJobs;
+import ethioskill.search.BookingCalendar;
+import ethioskill.search.IndexReloader;
+import ethioskill.search.ProviderIndex;
+import ethioskill.utils.LoginThrottle;
+import ethioskill.utils.PasswordUtil;
+import ethioskill.utils.SessionTokens;
+
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+import java.sql.SQLException;
+
+/**
+ * Starts and stops application-wide resources together with the web app,
+ * so a redeploy does not leave pooled connections or worker threads behind.
+ */
+@WebListener
+public class AppLifecycleListener implements ServletContextListener {
+    
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        // Started even when the database is down: its polling retries, and
+        // without it logouts made on other nodes would never be seen here
+        if (SessionTokens.isStateless()) {
+            SessionRevocations.start();
+        }
+        
+        // Open the pool eagerly so the first request doesn't pay for it
+        if (!DBConnection.testConnection()) {
+            System.err.println("WARNING: Database is not reachable at startup");
+            return;
+        }
+        
+        try {
+            ProviderIndex.getInstance().rebuild();
+        } catch (SQLException e) {
+            System.err.println("Provider index will be built on first search: " + e.getMessage());
+        }
+        
+        try {
+            BookingCalendar.getInstance().rebuild();
+        } catch (SQLException e) {
+            System.err.println("Booking calendar will be loaded on first use: " + e.getMessage());
+        }
+        
+        try {
+            StatsCounters.start();
+        } catch (SQLException e) {
+            System.err.println("Stats counters will be loaded on first use: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        // Stop report workers and index rebuilds, close event streams and flush
+        // queued notifications while the pool is still open
+        ReportJobs.shutdown();
+        IndexReloader.shutdown();
+        NotificationStreams.shutdown();
+        NotificationDispatcher.shutdown();
+        NotificationHub.shutdown();
+        SettingsStore.shutdown();
+        SessionRevocations.shutdown();
+        StatsCounters.shutdown();
+        LoginThrottle.shutdown();
+        PasswordUtil.shutdown();
+        DBConnection.shutdown();
+    }
+}
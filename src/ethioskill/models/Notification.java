@@ -0,0 +1,37 @@
+package ethioskill.models;
+
+import java.io.Serializable;
+
+public class Notification implements Serializable {
+    private long id;
+    private int userId;
+    private String message;
+    private long createdAt; // epoch millis
+    private boolean read;
+    
+    // Constructors
+    public Notification() {}
+    
+    public Notification(long id, int userId, String message, long createdAt) {
+        this.id = id;
+        this.userId = userId;
+        this.message = message;
+        this.createdAt = createdAt;
+    }
+    
+    // Getters and Setters
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
+    
+    public int getUserId() { return userId; }
+    public void setUserId(int userId) { this.userId = userId; }
+    
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+    
+    public long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+    
+    public boolean isRead() { return read; }
+    public void setRead(boolean read) { this.read = read; }
+}
@@ -0,0 +1,334 @@
+package ethioskill.push;
+
+import ethioskill.database.NotificationHub;
+import ethioskill.database.NotificationInbox;
+import ethioskill.models.Notification;
+import ethioskill.utils.AlertUtil;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open Server-Sent Events connections, grouped by user, that new
+ * notifications are pushed to as soon as NotificationDispatcher has written
+ * them.
+ *
+ * Each connection is a suspended AsyncContext, so an idle dashboard holds no
+ * request thread; a few sender threads do all the writing and a scheduler
+ * sends a comment line every HEARTBEAT_SECONDS to keep proxies from closing
+ * the connection and to notice clients that went away. Every event carries
+ * the notification id, so a browser that reconnects sends Last-Event-ID and
+ * gets the unread notifications it missed before live delivery resumes.
+ *
+ * Delivered notifications are marked read through NotificationHub, the same
+ * as the old polling endpoint did when it returned them.
+ */
+public class NotificationStreams {
+
+    private static final long STREAM_TIMEOUT_MS = 30 * 60 * 1000;
+    private static final long HEARTBEAT_SECONDS = 20;
+    private static final int SENDER_THREADS = 4;
+    private static final int REPLAY_PAGES = 4;
+    // Sent once per connection: how long the browser waits before reconnecting
+    private static final long RETRY_MS = 5000;
+
+    private static final Map<Integer, Set<Stream>> streams = new ConcurrentHashMap<>();
+    private static volatile ExecutorService senders;
+    private static ScheduledExecutorService scheduler;
+    private static volatile boolean running = true;
+
+    // Statistics
+    private static final AtomicInteger open = new AtomicInteger();
+    private static final AtomicLong opened = new AtomicLong();
+    private static final AtomicLong pushed = new AtomicLong();
+    private static final AtomicLong replayed = new AtomicLong();
+
+    private NotificationStreams() {}
+
+    /**
+     * Takes over a started async request as an event stream for {@code userId}.
+     * Notifications newer than {@code lastEventId} that are still unread are
+     * sent first, then live ones as they arrive.
+     */
+    public static void open(int userId, AsyncContext context, long lastEventId) throws IOException {
+        ensureStarted();
+        Stream stream = new Stream(userId, context);
+        context.setTimeout(STREAM_TIMEOUT_MS);
+        context.addListener(stream);
+
+        stream.start();
+        // Registered before the replay query so nothing written meanwhile is missed
+        streams.compute(userId, (id, set) -> {
+            Set<Stream> result = set != null ? set : ConcurrentHashMap.newKeySet();
+            result.add(stream);
+            return result;
+        });
+        open.incrementAndGet();
+        opened.incrementAndGet();
+
+        execute(() -> replay(stream, lastEventId), stream);
+    }
+
+    /**
+     * Pushes a freshly written notification to every open stream of its user.
+     */
+    public static void publish(Notification notification) {
+        if (!running) return;
+        Set<Stream> targets = streams.get(notification.getUserId());
+        if (targets == null) return;
+        for (Stream stream : targets) {
+            execute(() -> stream.deliver(notification), stream);
+        }
+    }
+
+    private static void replay(Stream stream, long lastEventId) {
+        List<Notification> missed = new ArrayList<>();
+        try {
+            long cursor = lastEventId;
+            for (int page = 0; page < REPLAY_PAGES; page++) {
+                NotificationInbox.Page batch = NotificationInbox.fetchUnread(
+                    stream.userId, cursor, NotificationInbox.MAX_LIMIT, true);
+                missed.addAll(batch.getNotifications());
+                cursor = batch.getNextCursor();
+                if (!batch.isHasMore()) break;
+            }
+        } catch (SQLException e) {
+            // Live delivery still works; the client can fetch history on its own
+            System.err.println("Could not replay notifications for user " + stream.userId + ": " + e.getMessage());
+        }
+        replayed.addAndGet(missed.size());
+        stream.replayed(missed);
+    }
+
+    private static void execute(Runnable task, Stream stream) {
+        ExecutorService current = senders;
+        if (current == null) {
+            stream.close();
+            return;
+        }
+        try {
+            current.execute(task);
+        } catch (RejectedExecutionException e) {
+            stream.close();
+        }
+    }
+
+    private static void remove(Stream stream) {
+        boolean[] removed = { false };
+        streams.computeIfPresent(stream.userId, (id, set) -> {
+            removed[0] = set.remove(stream);
+            return set.isEmpty() ? null : set;
+        });
+        if (removed[0]) {
+            open.decrementAndGet();
+        }
+    }
+
+    // ================= CONNECTION =================
+
+    /**
+     * One browser connection. All writes happen under its monitor so events
+     * stay whole and in id order.
+     */
+    private static final class Stream implements AsyncListener {
+        final int userId;
+        final AsyncContext context;
+        private long lastSentId = 0;
+        // Live events that arrive while the replay query runs; null afterwards
+        private List<Notification> held = new ArrayList<>();
+        // Also set from container callbacks, which must not wait on the monitor
+        private volatile boolean closed = false;
+
+        Stream(int userId, AsyncContext context) {
+            this.userId = userId;
+            this.context = context;
+        }
+
+        synchronized void start() throws IOException {
+            write("retry: " + RETRY_MS + "\n\n");
+        }
+
+        synchronized void deliver(Notification notification) {
+            if (closed) return;
+            if (held != null) {
+                held.add(notification);
+            } else {
+                send(notification);
+            }
+        }
+
+        synchronized void replayed(List<Notification> missed) {
+            if (closed) return;
+            for (Notification n : missed) {
+                send(n);
+            }
+            held.sort(Comparator.comparingLong(Notification::getId));
+            List<Notification> live = held;
+            held = null;
+            for (Notification n : live) {
+                send(n);
+            }
+        }
+
+        synchronized void ping() {
+            if (closed) return;
+            try {
+                write(": ping\n\n");
+            } catch (IOException | IllegalStateException e) {
+                close();
+            }
+        }
+
+        private void send(Notification n) {
+            // Replay and live delivery can overlap; each id goes out once
+            if (closed || n.getId() <= lastSentId) return;
+            Map<String, Object> data = new HashMap<>();
+            data.put("id", n.getId());
+            data.put("message", n.getMessage());
+            data.put("createdAt", n.getCreatedAt());
+            try {
+                write("id: " + n.getId() + "\nevent: notification\ndata: " + AlertUtil.GSON.toJson(data) + "\n\n");
+            } catch (IOException | IllegalStateException e) {
+                close();
+                return;
+            }
+            lastSentId = n.getId();
+            pushed.incrementAndGet();
+            NotificationHub.markRead(userId, Collections.singletonList(n.getId()));
+        }
+
+        private void write(String event) throws IOException {
+            OutputStream out = context.getResponse().getOutputStream();
+            out.write(event.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        /**
+         * Not synchronized: container callbacks call this while a sender may
+         * hold the monitor blocked in a write, and completing the context is
+         * what unblocks it. A second call only finds the context completed.
+         */
+        void close() {
+            if (closed) return;
+            closed = true;
+            remove(this);
+            try {
+                context.complete();
+            } catch (IllegalStateException e) {
+                // Already completed by the container
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            closed = true;
+            remove(this);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // The browser reconnects on its own with Last-Event-ID
+            close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {}
+    }
+
+    // ================= BACKGROUND =================
+
+    private static void heartbeat() {
+        for (Set<Stream> set : streams.values()) {
+            for (Stream stream : set) {
+                execute(stream::ping, stream);
+            }
+        }
+    }
+
+    // ================= LIFECYCLE =================
+
+    private static synchronized void ensureStarted() {
+        if (senders != null) return;
+        running = true;
+
+        AtomicInteger counter = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(SENDER_THREADS, r -> {
+            Thread t = new Thread(r, "notification-push-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "notification-push-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(NotificationStreams::heartbeat,
+            HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Closes every open stream. Called when the web application stops.
+     */
+    public static void shutdown() {
+        ExecutorService currentSenders;
+        ScheduledExecutorService currentScheduler;
+        synchronized (NotificationStreams.class) {
+            running = false;
+            currentSenders = senders;
+            currentScheduler = scheduler;
+            senders = null;
+            scheduler = null;
+        }
+        if (currentScheduler != null) {
+            currentScheduler.shutdownNow();
+        }
+        if (currentSenders != null) {
+            currentSenders.shutdown();
+            try {
+                currentSenders.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Set<Stream> set : streams.values()) {
+            for (Stream stream : set) {
+                stream.close();
+            }
+        }
+    }
+
+    public static Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("openStreams", open.get());
+        stats.put("connectedUsers", streams.size());
+        stats.put("streamsOpened", opened.get());
+        stats.put("pushed", pushed.get());
+        stats.put("replayed", replayed.get());
+        return stats;
+    }
+}
@@ -0,0 +1,78 @@
+package ethioskill.reports;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a report as CSV (RFC 4180). Each table starts with a one-cell title
+ * row and a header row; tables are separated by an empty line.
+ */
+public class CsvTableWriter implements TableWriter {
+
+    private final Writer out;
+
+    public CsvTableWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void beginReport(String title, String subtitle) throws IOException {
+        // Byte order mark so Excel opens UTF-8 (Amharic names) correctly
+        out.write('\uFEFF');
+        cell(title);
+        out.write("\r\n");
+        cell(subtitle);
+        out.write("\r\n");
+    }
+
+    @Override
+    public void beginTable(String title, String... columns) throws IOException {
+        out.write("\r\n");
+        cell(title);
+        out.write("\r\n");
+        row((Object[]) columns);
+    }
+
+    @Override
+    public void row(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) out.write(',');
+            cell(values[i] != null ? values[i].toString() : null);
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void endTable() throws IOException {
+    }
+
+    @Override
+    public void endReport() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void cell(String value) throws IOException {
+        out.write(escape(value));
+    }
+
+    /**
+     * One CSV field: quoted when needed, and with a leading quote added to
+     * anything a spreadsheet would run as a formula. Null becomes an empty field.
+     */
+    public static String escape(String value) {
+        if (value == null) return "";
+        // A leading = + - @ makes spreadsheets evaluate the cell as a formula
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,94 @@
+package ethioskill.reports;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a report as a standalone HTML page, one table per section.
+ */
+public class HtmlTableWriter implements TableWriter {
+
+    private final Writer out;
+
+    public HtmlTableWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void beginReport(String title, String subtitle) throws IOException {
+        out.write("<!DOCTYPE html>\n<html><head><meta charset=\"UTF-8\"><title>");
+        escape(title);
+        out.write("</title><style>" +
+            "body{font-family:Arial,sans-serif;margin:24px}" +
+            "table{border-collapse:collapse;margin-bottom:32px}" +
+            "th,td{border:1px solid #ccc;padding:4px 8px;text-align:left}" +
+            "th{background:#f0f0f0}</style></head><body>\n<h1>");
+        escape(title);
+        out.write("</h1>\n<p>");
+        escape(subtitle);
+        out.write("</p>\n");
+    }
+
+    @Override
+    public void beginTable(String title, String... columns) throws IOException {
+        out.write("<h2>");
+        escape(title);
+        out.write("</h2>\n<table><thead><tr>");
+        for (String column : columns) {
+            out.write("<th>");
+            escape(column);
+            out.write("</th>");
+        }
+        out.write("</tr></thead><tbody>\n");
+    }
+
+    @Override
+    public void row(Object... values) throws IOException {
+        out.write("<tr>");
+        for (Object value : values) {
+            out.write("<td>");
+            if (value != null) {
+                escape(value.toString());
+            }
+            out.write("</td>");
+        }
+        out.write("</tr>\n");
+    }
+
+    @Override
+    public void endTable() throws IOException {
+        out.write("</tbody></table>\n");
+    }
+
+    @Override
+    public void endReport() throws IOException {
+        out.write("</body></html>\n");
+        out.flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    // Escapes straight into the writer so no per-cell strings are built
+    private void escape(String text) throws IOException {
+        if (text == null) return;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String entity;
+            switch (text.charAt(i)) {
+                case '<': entity = "&lt;"; break;
+                case '>': entity = "&gt;"; break;
+                case '&': entity = "&amp;"; break;
+                case '"': entity = "&quot;"; break;
+                case '\'': entity = "&#x27;"; break;
+                default: continue;
+            }
+            out.write(text, start, i - start);
+            out.write(entity);
+            start = i + 1;
+        }
+        out.write(text, start, text.length() - start);
+    }
+}
@@ -0,0 +1,157 @@
+package ethioskill.reports;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Builds the admin reports by streaming query results straight into a
+ * {@link TableWriter}.
+ *
+ * Every section reads through a forward-only cursor and writes each row as
+ * soon as it arrives, flushing every FLUSH_EVERY_ROWS rows, so heap use stays
+ * flat no matter how many users, providers or bookings there are.
+ *
+ * "detailed" covers the summary plus every user, provider and booking;
+ * "general" is the summary tables only.
+ */
+public class ReportGenerator {
+
+    public static final String DETAILED = "detailed";
+    public static final String GENERAL = "general";
+
+    private static final int FLUSH_EVERY_ROWS = 1000;
+
+    private static final String USERS_SQL =
+        "SELECT user_id, full_name, phone_number, role, status FROM users ORDER BY user_id";
+    private static final String PROVIDERS_SQL =
+        "SELECT u.user_id, u.full_name, u.phone_number, u.status, pd.city, pd.primary_skill, " +
+        "pd.payment_type, pd.availability_status " +
+        "FROM users u JOIN provider_details pd ON pd.provider_id = u.user_id " +
+        "WHERE u.role = 'Provider' ORDER BY u.user_id";
+    private static final String BOOKINGS_SQL =
+        "SELECT b.booking_id, b.service_date, b.status, b.seeker_id, b.seeker_name, b.seeker_phone, " +
+        "b.provider_id, p.full_name AS provider_name, b.service_address, b.service_details " +
+        "FROM bookings b LEFT JOIN users p ON p.user_id = b.provider_id ORDER BY b.booking_id";
+
+    private final Connection conn;
+    private final TableWriter out;
+    // Only the generating thread writes it; progress polls read it from others
+    private volatile long rowsWritten = 0;
+
+    public ReportGenerator(Connection conn, TableWriter out) {
+        this.conn = conn;
+        this.out = out;
+    }
+
+    public static boolean isKnownType(String type) {
+        return DETAILED.equals(type) || GENERAL.equals(type);
+    }
+
+    /**
+     * Writes the whole report. Rows already written stay written if a query
+     * fails part-way; the caller decides how to report that.
+     */
+    public void generate(String type) throws SQLException, IOException {
+        boolean detailed = DETAILED.equals(type);
+        out.beginReport(detailed ? "EthioSkill Detailed Report" : "EthioSkill General Report",
+            "Generated " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
+        // Get the title on the wire before the first query runs
+        out.flush();
+
+        writeSummary();
+        if (detailed) {
+            writeUsers();
+            writeProviders();
+            writeBookings();
+        }
+        out.endReport();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    private void writeSummary() throws SQLException, IOException {
+        out.beginTable("Users by role and status", "Role", "Status", "Count");
+        stream("SELECT role, COALESCE(status, '') AS status, COUNT(*) AS n FROM users " +
+               "GROUP BY role, status ORDER BY role, status",
+            rs -> out.row(rs.getString("role"), rs.getString("status"), rs.getLong("n")));
+        out.endTable();
+
+        out.beginTable("Bookings by status", "Status", "Count");
+        stream("SELECT status, COUNT(*) AS n FROM bookings GROUP BY status ORDER BY status",
+            rs -> out.row(rs.getString("status"), rs.getLong("n")));
+        out.endTable();
+
+        out.beginTable("Bookings by skill", "Skill", "Bookings");
+        stream("SELECT pd.primary_skill, COUNT(*) AS n FROM bookings b " +
+               "JOIN provider_details pd ON pd.provider_id = b.provider_id " +
+               "GROUP BY pd.primary_skill ORDER BY n DESC",
+            rs -> out.row(rs.getString("primary_skill"), rs.getLong("n")));
+        out.endTable();
+
+        out.beginTable("Verified providers by city", "City", "Providers");
+        stream("SELECT pd.city, COUNT(*) AS n FROM provider_details pd " +
+               "JOIN users u ON u.user_id = pd.provider_id WHERE u.status = 'Verified' " +
+               "GROUP BY pd.city ORDER BY n DESC",
+            rs -> out.row(rs.getString("city"), rs.getLong("n")));
+        out.endTable();
+    }
+
+    private void writeUsers() throws SQLException, IOException {
+        out.beginTable("All users", "ID", "Full name", "Phone", "Role", "Status");
+        stream(USERS_SQL, rs -> out.row(rs.getInt("user_id"), rs.getString("full_name"),
+            rs.getString("phone_number"), rs.getString("role"), rs.getString("status")));
+        out.endTable();
+    }
+
+    private void writeProviders() throws SQLException, IOException {
+        out.beginTable("All providers", "ID", "Full name", "Phone", "Status", "City", "Skill",
+            "Payment", "Availability");
+        stream(PROVIDERS_SQL, rs -> out.row(rs.getInt("user_id"), rs.getString("full_name"),
+            rs.getString("phone_number"), rs.getString("status"), rs.getString("city"),
+            rs.getString("primary_skill"), rs.getString("payment_type"), rs.getString("availability_status")));
+        out.endTable();
+    }
+
+    private void writeBookings() throws SQLException, IOException {
+        out.beginTable("All bookings", "ID", "Service date", "Status", "Seeker ID", "Seeker name",
+            "Seeker phone", "Provider ID", "Provider name", "Address", "Details");
+        stream(BOOKINGS_SQL, rs -> out.row(rs.getInt("booking_id"), rs.getDate("service_date"),
+            rs.getString("status"), rs.getInt("seeker_id"), rs.getString("seeker_name"),
+            rs.getString("seeker_phone"), rs.getInt("provider_id"), rs.getString("provider_name"),
+            rs.getString("service_address"), rs.getString("service_details")));
+        out.endTable();
+    }
+
+    private interface RowHandler {
+        void handle(ResultSet rs) throws SQLException, IOException;
+    }
+
+    private void stream(String sql, RowHandler handler) throws SQLException, IOException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Connector/J only streams row by row with this fetch size
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    if (++rowsWritten % FLUSH_EVERY_ROWS == 0) {
+                        out.flush();
+                        // Background jobs are stopped by interrupting the worker
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new InterruptedIOException("Report generation cancelled");
+                        }
+                    }
+                }
+            }
+        }
+        out.flush();
+    }
+}
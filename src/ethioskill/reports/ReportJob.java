@@ -0,0 +1,89 @@
+package ethioskill.reports;
+
+import java.nio.file.Path;
+
+/**
+ * State of one background report. Fields written by the worker are volatile
+ * so status polls from request threads see them without locking.
+ */
+public class ReportJob {
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    private final String id;
+    private final String format;
+    private final String output;
+    private final int requestedBy;
+    private final long createdAt;
+    private final long estimatedRows;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile long fileSize;
+    private volatile String error;
+
+    // Not serialized to clients
+    private transient volatile ReportGenerator generator;
+    private transient volatile Path file;
+
+    ReportJob(String id, String format, String output, int requestedBy, long estimatedRows) {
+        this.id = id;
+        this.format = format;
+        this.output = output;
+        this.requestedBy = requestedBy;
+        this.createdAt = System.currentTimeMillis();
+        this.estimatedRows = estimatedRows;
+    }
+
+    public String getId() { return id; }
+    public String getFormat() { return format; }
+    public String getOutput() { return output; }
+    public int getRequestedBy() { return requestedBy; }
+    public long getCreatedAt() { return createdAt; }
+    public Status getStatus() { return status; }
+    public long getStartedAt() { return startedAt; }
+    public long getFinishedAt() { return finishedAt; }
+    public long getFileSize() { return fileSize; }
+    public String getError() { return error; }
+
+    public long getRowsWritten() {
+        ReportGenerator g = generator;
+        return g != null ? g.getRowsWritten() : 0;
+    }
+
+    /**
+     * Rough completion percentage from rows written against the row counts
+     * known when the job was submitted; 100 only once the file is complete.
+     */
+    public int getPercent() {
+        if (status == Status.DONE) return 100;
+        if (estimatedRows <= 0) return 0;
+        return (int) Math.min(99, getRowsWritten() * 100 / estimatedRows);
+    }
+
+    public String getFileName() {
+        return "EthioSkill_Report_" + format + "_" + id.substring(0, 8) + ("csv".equals(output) ? ".csv" : ".html");
+    }
+
+    Path getFile() { return file; }
+
+    void started(ReportGenerator generator) {
+        this.generator = generator;
+        this.startedAt = System.currentTimeMillis();
+        this.status = Status.RUNNING;
+    }
+
+    void finished(Path file, long size) {
+        this.file = file;
+        this.fileSize = size;
+        this.finishedAt = System.currentTimeMillis();
+        this.status = Status.DONE;
+    }
+
+    void failed(String error) {
+        this.error = error;
+        this.finishedAt = System.currentTimeMillis();
+        this.status = Status.FAILED;
+    }
+}
@@ -0,0 +1,253 @@
+package ethioskill.reports;
+
+import ethioskill.database.DBConnection;
+import ethioskill.database.StatsCounters;
+import ethioskill.utils.EnvConfig;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs report generation in the background so the request that asks for a
+ * report returns straight away with a job id.
+ *
+ * A small fixed pool of workers writes each report to a file under
+ * REPORT_DIR. The admin dashboard polls the job for progress and downloads
+ * the file once it is done. Finished jobs and their files are deleted after
+ * REPORT_RETENTION_HOURS; the queue is bounded so a burst of requests is
+ * refused instead of piling up.
+ */
+public class ReportJobs {
+
+    private static final int DEFAULT_WORKERS = 2;
+    private static final int DEFAULT_QUEUE = 10;
+    private static final long DEFAULT_RETENTION_HOURS = 24;
+    private static final long CLEANUP_INTERVAL_MIN = 30;
+
+    private static final String PARTIAL_SUFFIX = ".part";
+    // REPORT_DIR may be shared; only files named like ours are ever deleted
+    private static final Pattern REPORT_FILE = Pattern.compile(
+        "([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})\\.(csv|html|part)");
+
+    private static final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    private static ThreadPoolExecutor workers;
+    private static ScheduledExecutorService cleaner;
+    private static Path directory;
+    private static long retentionMs;
+
+    private ReportJobs() {}
+
+    /**
+     * Queues a report.
+     *
+     * @throws RejectedExecutionException if the queue is full
+     * @throws IOException if the report directory cannot be created
+     */
+    public static ReportJob submit(String format, String output, int requestedBy) throws IOException {
+        ensureStarted();
+        ReportJob job = new ReportJob(UUID.randomUUID().toString(), format, output, requestedBy,
+            estimateRows(format));
+        jobs.put(job.getId(), job);
+        try {
+            workers.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    public static ReportJob get(String id) {
+        return id != null ? jobs.get(id) : null;
+    }
+
+    /**
+     * All known jobs, newest first.
+     */
+    public static List<ReportJob> list() {
+        List<ReportJob> all = new ArrayList<>(jobs.values());
+        all.sort((a, b) -> Long.compare(b.getCreatedAt(), a.getCreatedAt()));
+        return all;
+    }
+
+    /**
+     * The finished report file, or null if the job is unknown, not done yet,
+     * or its file has been cleaned up.
+     */
+    public static Path artifact(ReportJob job) {
+        if (job == null || job.getStatus() != ReportJob.Status.DONE) {
+            return null;
+        }
+        Path file = job.getFile();
+        return file != null && Files.isRegularFile(file) ? file : null;
+    }
+
+    // Row counts already kept in memory give a progress estimate without a COUNT query
+    private static long estimateRows(String format) {
+        if (!ReportGenerator.DETAILED.equals(format)) {
+            return 0;
+        }
+        try {
+            StatsCounters.Snapshot counters = StatsCounters.get();
+            // users + providers + bookings tables, plus a few summary rows
+            return counters.getTotalUsers() + counters.getUserDistribution().getOrDefault("Provider", 0L) +
+                   counters.getTotalBookings();
+        } catch (SQLException e) {
+            return 0;
+        }
+    }
+
+    private static void run(ReportJob job) {
+        Path partial = directory.resolve(job.getId() + PARTIAL_SUFFIX);
+        Path finished = directory.resolve(job.getId() + ("csv".equals(job.getOutput()) ? ".csv" : ".html"));
+
+        try (Connection conn = DBConnection.getConnection();
+             Writer writer = new BufferedWriter(new OutputStreamWriter(
+                 Files.newOutputStream(partial), StandardCharsets.UTF_8))) {
+
+            TableWriter out = "csv".equals(job.getOutput()) ? new CsvTableWriter(writer) : new HtmlTableWriter(writer);
+            ReportGenerator generator = new ReportGenerator(conn, out);
+            job.started(generator);
+            generator.generate(job.getFormat());
+        } catch (SQLException | IOException e) {
+            System.err.println("Report job " + job.getId() + " failed: " + e.getMessage());
+            e.printStackTrace();
+            deleteQuietly(partial);
+            job.failed(e instanceof SQLException ? "Database error" : "Could not write report file");
+            return;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            deleteQuietly(partial);
+            job.failed("Unexpected error");
+            return;
+        }
+
+        try {
+            // Only a complete file ever gets its final name
+            Files.move(partial, finished, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.finished(finished, Files.size(finished));
+        } catch (IOException e) {
+            e.printStackTrace();
+            deleteQuietly(partial);
+            job.failed("Could not write report file");
+        }
+    }
+
+    // ================= RETENTION =================
+
+    private static void cleanup() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        try {
+            for (ReportJob job : jobs.values()) {
+                boolean ended = job.getStatus() == ReportJob.Status.DONE || job.getStatus() == ReportJob.Status.FAILED;
+                if (ended && job.getFinishedAt() < cutoff) {
+                    jobs.remove(job.getId());
+                    if (job.getFile() != null) {
+                        deleteQuietly(job.getFile());
+                    }
+                }
+            }
+            // Files without a job are left over from a previous run: half-written
+            // ones go straight away, finished ones once they pass the retention age
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    Matcher m = REPORT_FILE.matcher(name);
+                    if (!m.matches() || !Files.isRegularFile(file)) continue;
+                    String id = m.group(1);
+                    boolean stale = name.endsWith(PARTIAL_SUFFIX) || Files.getLastModifiedTime(file).toMillis() < cutoff;
+                    if (!jobs.containsKey(id) && stale) {
+                        deleteQuietly(file);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Never let the scheduled task die
+            System.err.println("Report cleanup failed: " + e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Could not delete " + file + ": " + e.getMessage());
+        }
+    }
+
+    // ================= LIFECYCLE =================
+
+    private static synchronized void ensureStarted() throws IOException {
+        if (workers != null) return;
+
+        String dir = System.getenv("REPORT_DIR");
+        directory = dir != null && !dir.trim().isEmpty()
+            ? Paths.get(dir.trim())
+            : Paths.get(System.getProperty("java.io.tmpdir"), "ethioskill-reports");
+        Files.createDirectories(directory);
+
+        int poolSize = (int) EnvConfig.readLong("REPORT_WORKERS", DEFAULT_WORKERS);
+        int queueSize = (int) EnvConfig.readLong("REPORT_QUEUE", DEFAULT_QUEUE);
+        retentionMs = TimeUnit.HOURS.toMillis(EnvConfig.readLong("REPORT_RETENTION_HOURS", DEFAULT_RETENTION_HOURS));
+
+        AtomicInteger counter = new AtomicInteger();
+        workers = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize), r -> {
+                Thread t = new Thread(r, "report-worker-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
+        cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "report-cleanup");
+            t.setDaemon(true);
+            return t;
+        });
+        cleaner.scheduleWithFixedDelay(ReportJobs::cleanup, 0, CLEANUP_INTERVAL_MIN, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Cancels running reports and stops the workers. Called when the web
+     * application stops; unfinished files are removed on the next start.
+     */
+    public static synchronized void shutdown() {
+        if (workers != null) {
+            workers.shutdownNow();
+            try {
+                workers.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            workers = null;
+        }
+        if (cleaner != null) {
+            cleaner.shutdownNow();
+            cleaner = null;
+        }
+        jobs.clear();
+    }
+}
@@ -0,0 +1,23 @@
+package ethioskill.reports;
+
+import java.io.IOException;
+
+/**
+ * Output format for a report made of titled tables. Rows are written as they
+ * are produced; implementations must not hold on to them.
+ */
+public interface TableWriter {
+
+    void beginReport(String title, String subtitle) throws IOException;
+
+    void beginTable(String title, String... columns) throws IOException;
+
+    void row(Object... values) throws IOException;
+
+    void endTable() throws IOException;
+
+    void endReport() throws IOException;
+
+    /** Pushes buffered output towards the client or file. */
+    void flush() throws IOException;
+}
@@ -0,0 +1,265 @@
+package ethioskill.search;
+
+import ethioskill.database.DBConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Which days each provider is already booked, over a rolling window of
+ * HORIZON_DAYS starting today.
+ *
+ * Every provider with an active (not cancelled) booking in the window has a
+ * BitSet where bit n means "booked on firstDay + n". That is a few longs per
+ * provider, so the "available on" search filter and the month calendar are
+ * answered from memory instead of a range scan over bookings.
+ *
+ * The window is loaded from MySQL at startup and kept current by calling
+ * {@link #book} and {@link #release} after every booking, acceptance and
+ * cancellation. It is reloaded in the background when the date changes and
+ * every REBUILD_INTERVAL_MS as a backstop for edits made outside the app.
+ * Days past the window are not tracked; callers check {@link #covers} and
+ * fall back to the database for those.
+ */
+public class BookingCalendar {
+
+    public static final int HORIZON_DAYS = 366;
+
+    private static final long REBUILD_INTERVAL_MS = 60 * 60 * 1000;
+
+    private static final String SELECT_SQL =
+        "SELECT provider_id, service_date FROM bookings " +
+        "WHERE status != 'Cancelled' AND service_date >= ? AND service_date < ?";
+
+    private static final BookingCalendar INSTANCE = new BookingCalendar();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Integer, BitSet> booked = new HashMap<>();
+    private long firstDay;
+    // Changes made while a rebuild is reading the table, replayed onto its result
+    private List<Change> journal;
+
+    private final IndexReloader reloader = new IndexReloader("booking calendar", REBUILD_INTERVAL_MS, this::rebuild);
+
+    private static final class Change {
+        final int providerId;
+        final long epochDay;
+        final boolean booked;
+
+        Change(int providerId, long epochDay, boolean booked) {
+            this.providerId = providerId;
+            this.epochDay = epochDay;
+            this.booked = booked;
+        }
+    }
+
+    private BookingCalendar() {}
+
+    public static BookingCalendar getInstance() {
+        return INSTANCE;
+    }
+
+    // ================= QUERIES =================
+
+    /**
+     * Whether {@code date} falls inside the tracked window, i.e. from today up
+     * to HORIZON_DAYS ahead. Answers for other dates come from the database.
+     */
+    public boolean covers(LocalDate date) throws SQLException {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return coversLocked(date.toEpochDay());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the date is outside the window
+     */
+    public boolean isBooked(int providerId, LocalDate date) throws SQLException {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            long day = date.toEpochDay();
+            if (!coversLocked(day)) {
+                throw new IllegalArgumentException("Date outside the booking horizon: " + date);
+            }
+            BitSet days = booked.get(providerId);
+            return days != null && days.get((int) (day - firstDay));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Day-of-month numbers of {@code month} that are booked for the provider,
+     * and those that are still free. Days outside the window (already past or
+     * beyond the horizon) appear in neither list.
+     *
+     * @throws IllegalArgumentException if no day of the month is inside the window
+     */
+    public Map<String, List<Integer>> month(int providerId, YearMonth month) throws SQLException {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            long first = Math.max(month.atDay(1).toEpochDay(), today());
+            long last = Math.min(month.atEndOfMonth().toEpochDay(), firstDay + HORIZON_DAYS - 1);
+            if (first > last) {
+                throw new IllegalArgumentException("Month outside the booking horizon: " + month);
+            }
+
+            BitSet days = booked.get(providerId);
+            List<Integer> taken = new ArrayList<>();
+            List<Integer> free = new ArrayList<>();
+            for (long day = first; day <= last; day++) {
+                int dayOfMonth = LocalDate.ofEpochDay(day).getDayOfMonth();
+                if (days != null && days.get((int) (day - firstDay))) {
+                    taken.add(dayOfMonth);
+                } else {
+                    free.add(dayOfMonth);
+                }
+            }
+
+            Map<String, List<Integer>> result = new HashMap<>();
+            result.put("booked", taken);
+            result.put("available", free);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean coversLocked(long day) {
+        // The window may still start yesterday until the daily reload finishes
+        return day >= today() && day < firstDay + HORIZON_DAYS;
+    }
+
+    private static long today() {
+        return LocalDate.now().toEpochDay();
+    }
+
+    // ================= UPDATES =================
+
+    /**
+     * Marks the provider as booked on {@code date}. Call after a booking is
+     * stored or accepted; dates outside the window are ignored.
+     */
+    public void book(int providerId, LocalDate date) {
+        apply(new Change(providerId, date.toEpochDay(), true));
+    }
+
+    /**
+     * Frees the day again after a booking is cancelled. One provider has at
+     * most one active booking per day, so the whole day becomes available.
+     */
+    public void release(int providerId, LocalDate date) {
+        apply(new Change(providerId, date.toEpochDay(), false));
+    }
+
+    private void apply(Change change) {
+        lock.writeLock().lock();
+        try {
+            if (journal != null) {
+                journal.add(change);
+            }
+            if (reloader.isLoaded()) {
+                applyLocked(booked, firstDay, change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void applyLocked(Map<Integer, BitSet> target, long firstDay, Change change) {
+        long offset = change.epochDay - firstDay;
+        if (offset < 0 || offset >= HORIZON_DAYS) return;
+        if (change.booked) {
+            target.computeIfAbsent(change.providerId, id -> new BitSet(HORIZON_DAYS)).set((int) offset);
+        } else {
+            BitSet days = target.get(change.providerId);
+            if (days != null) {
+                days.clear((int) offset);
+                if (days.isEmpty()) {
+                    target.remove(change.providerId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reloads the window starting today from MySQL. Bookings made while the
+     * query runs are replayed onto the new data before it replaces the old.
+     */
+    public synchronized void rebuild() throws SQLException {
+        long first = today();
+        lock.writeLock().lock();
+        try {
+            journal = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Integer, BitSet> fresh = new HashMap<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_SQL,
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setDate(1, java.sql.Date.valueOf(LocalDate.ofEpochDay(first)));
+            stmt.setDate(2, java.sql.Date.valueOf(LocalDate.ofEpochDay(first + HORIZON_DAYS)));
+            // Connector/J only streams row by row with this fetch size
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long day = rs.getDate("service_date").toLocalDate().toEpochDay();
+                    applyLocked(fresh, first, new Change(rs.getInt("provider_id"), day, true));
+                }
+            }
+        } catch (SQLException e) {
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Change change : journal) {
+                applyLocked(fresh, first, change);
+            }
+            journal = null;
+            booked = fresh;
+            firstDay = first;
+            reloader.built();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() throws SQLException {
+        // Reload as soon as the date changes, not only when the interval is up
+        reloader.ensureLoaded(reloader.isLoaded() && firstDayBefore(today()));
+    }
+
+    private boolean firstDayBefore(long day) {
+        lock.readLock().lock();
+        try {
+            return firstDay < day;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
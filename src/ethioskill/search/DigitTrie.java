@@ -0,0 +1,106 @@
+package ethioskill.search;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Trie over strings of decimal digits, mapping each full key to the ids
+ * stored under it. A lookup walks the prefix once and then visits only the
+ * keys below it, so a prefix search costs the prefix length plus the number
+ * of matches, independent of how many keys there are in total.
+ *
+ * Not thread-safe; UserSearchIndex guards it with its read/write lock.
+ */
+class DigitTrie {
+
+    interface Visitor {
+        /**
+         * @param extraDigits how many digits the matched key has beyond the prefix (0 = exact)
+         */
+        void visit(int id, int extraDigits);
+    }
+
+    private static final class Node {
+        final Node[] next = new Node[10];
+        Set<Integer> ids;
+        int size; // keys at or below this node, for pruning empty branches
+    }
+
+    private final Node root = new Node();
+
+    void add(String digits, int id) {
+        Node node = root;
+        node.size++;
+        for (int i = 0; i < digits.length(); i++) {
+            int d = digits.charAt(i) - '0';
+            if (node.next[d] == null) {
+                node.next[d] = new Node();
+            }
+            node = node.next[d];
+            node.size++;
+        }
+        if (node.ids == null) {
+            node.ids = new HashSet<>(2);
+        }
+        node.ids.add(id);
+    }
+
+    void remove(String digits, int id) {
+        // Check first so sizes stay exact if the key was never added
+        Node node = find(digits);
+        if (node == null || node.ids == null || !node.ids.remove(id)) return;
+
+        node = root;
+        node.size--;
+        for (int i = 0; i < digits.length(); i++) {
+            int d = digits.charAt(i) - '0';
+            Node child = node.next[d];
+            if (--child.size == 0) {
+                node.next[d] = null; // the whole branch is now empty
+                return;
+            }
+            node = child;
+        }
+    }
+
+    void clear() {
+        for (int d = 0; d < 10; d++) {
+            root.next[d] = null;
+        }
+        root.ids = null;
+        root.size = 0;
+    }
+
+    /**
+     * Visits every id whose key starts with {@code prefix}.
+     */
+    void visitPrefix(String prefix, Visitor visitor) {
+        Node node = find(prefix);
+        if (node != null) {
+            walk(node, 0, visitor);
+        }
+    }
+
+    private Node find(String digits) {
+        Node node = root;
+        for (int i = 0; i < digits.length() && node != null; i++) {
+            int d = digits.charAt(i) - '0';
+            if (d < 0 || d > 9) return null;
+            node = node.next[d];
+        }
+        return node;
+    }
+
+    private static void walk(Node node, int depth, Visitor visitor) {
+        if (node.ids != null) {
+            for (int id : node.ids) {
+                visitor.visit(id, depth);
+            }
+        }
+        for (Node child : node.next) {
+            if (child != null) {
+                walk(child, depth + 1, visitor);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package ethioskill.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Inverted index over provider name, skill and description with BM25 scoring.
+ *
+ * Terms are indexed twice: by surface form (exact spelling) and by the folded
+ * key from {@link TextAnalyzer}, so transliterated and Ge'ez spellings of the
+ * same word still match, just with a lower weight than an exact hit. The last
+ * query word also matches as a prefix to support type-ahead.
+ *
+ * Not thread-safe; ProviderIndex guards it with its read/write lock.
+ */
+class FullTextIndex {
+
+    // Field boosts: a hit in the name matters more than one in the description
+    static final float NAME_WEIGHT = 3.0f;
+    static final float SKILL_WEIGHT = 2.0f;
+    static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    private static final float EXACT_MATCH = 1.0f;
+    private static final float FOLDED_MATCH = 0.7f;
+    private static final float PREFIX_MATCH = 0.4f;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+
+    // BM25 parameters
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private final Map<String, Map<Integer, Float>> exact = new HashMap<>();
+    private final TreeMap<String, Map<Integer, Float>> folded = new TreeMap<>();
+    private final Map<Integer, DocEntry> docs = new HashMap<>();
+    private long totalLength = 0;
+
+    private static final class DocEntry {
+        final List<String> exactTerms = new ArrayList<>();
+        final List<String> foldedTerms = new ArrayList<>();
+        float length;
+    }
+
+    void add(int id, String name, String skill, String description) {
+        remove(id);
+        DocEntry entry = new DocEntry();
+        Map<String, Float> exactTf = new HashMap<>();
+        Map<String, Float> foldedTf = new HashMap<>();
+        entry.length += accumulate(name, NAME_WEIGHT, exactTf, foldedTf);
+        entry.length += accumulate(skill, SKILL_WEIGHT, exactTf, foldedTf);
+        entry.length += accumulate(description, DESCRIPTION_WEIGHT, exactTf, foldedTf);
+
+        for (Map.Entry<String, Float> e : exactTf.entrySet()) {
+            exact.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(id, e.getValue());
+            entry.exactTerms.add(e.getKey());
+        }
+        for (Map.Entry<String, Float> e : foldedTf.entrySet()) {
+            folded.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(id, e.getValue());
+            entry.foldedTerms.add(e.getKey());
+        }
+        docs.put(id, entry);
+        totalLength += (long) entry.length;
+    }
+
+    private static int accumulate(String text, float weight, Map<String, Float> exactTf, Map<String, Float> foldedTf) {
+        List<TextAnalyzer.Token> tokens = TextAnalyzer.analyze(text);
+        for (TextAnalyzer.Token t : tokens) {
+            exactTf.merge(t.surface, weight, Float::sum);
+            if (!t.folded.isEmpty()) {
+                foldedTf.merge(t.folded, weight, Float::sum);
+            }
+        }
+        return tokens.size();
+    }
+
+    void remove(int id) {
+        DocEntry entry = docs.remove(id);
+        if (entry == null) return;
+        for (String term : entry.exactTerms) {
+            removePosting(exact, term, id);
+        }
+        for (String term : entry.foldedTerms) {
+            removePosting(folded, term, id);
+        }
+        totalLength -= (long) entry.length;
+    }
+
+    private static void removePosting(Map<String, Map<Integer, Float>> index, String term, int id) {
+        Map<Integer, Float> postings = index.get(term);
+        if (postings == null) return;
+        postings.remove(id);
+        if (postings.isEmpty()) {
+            index.remove(term);
+        }
+    }
+
+    void clear() {
+        exact.clear();
+        folded.clear();
+        docs.clear();
+        totalLength = 0;
+    }
+
+    /**
+     * Scores every document that matches at least one query word.
+     *
+     * @return provider id to relevance score
+     */
+    Map<Integer, Float> score(String query) {
+        Map<Integer, Float> scores = new HashMap<>();
+        List<TextAnalyzer.Token> tokens = TextAnalyzer.analyze(query);
+        if (tokens.isEmpty() || docs.isEmpty()) {
+            return scores;
+        }
+        float avgLength = Math.max(1f, (float) totalLength / docs.size());
+
+        for (int i = 0; i < tokens.size(); i++) {
+            TextAnalyzer.Token token = tokens.get(i);
+            boolean last = i == tokens.size() - 1;
+
+            // Best contribution of this query word per document
+            Map<Integer, Float> best = new HashMap<>();
+            collect(best, exact.get(token.surface), EXACT_MATCH, avgLength);
+            collect(best, folded.get(token.folded), FOLDED_MATCH, avgLength);
+            if (last && !token.folded.isEmpty()) {
+                NavigableMap<String, Map<Integer, Float>> range =
+                    folded.subMap(token.folded, false, token.folded + Character.MAX_VALUE, false);
+                int expansions = 0;
+                for (Map<Integer, Float> postings : range.values()) {
+                    if (++expansions > MAX_PREFIX_EXPANSIONS) break;
+                    collect(best, postings, PREFIX_MATCH, avgLength);
+                }
+            }
+            for (Map.Entry<Integer, Float> e : best.entrySet()) {
+                scores.merge(e.getKey(), e.getValue(), Float::sum);
+            }
+        }
+        return scores;
+    }
+
+    private void collect(Map<Integer, Float> best, Map<Integer, Float> postings, float matchWeight, float avgLength) {
+        if (postings == null || postings.isEmpty()) return;
+        int n = docs.size();
+        int df = postings.size();
+        double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+
+        for (Map.Entry<Integer, Float> p : postings.entrySet()) {
+            DocEntry doc = docs.get(p.getKey());
+            float tf = p.getValue();
+            double norm = K1 * (1 - B + B * doc.length / avgLength);
+            float s = (float) (matchWeight * idf * (tf * (K1 + 1)) / (tf + norm));
+            best.merge(p.getKey(), s, Math::max);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package ethioskill.search;
+
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Load-on-first-use and periodic background rebuilds for the in-memory
+ * indexes.
+ *
+ * The first caller loads the index synchronously; after that, a caller that
+ * finds it older than its interval (or otherwise due) queues a rebuild and
+ * carries on with the current data. All indexes share one daemon thread,
+ * which {@link #shutdown()} stops when the web application stops.
+ */
+public final class IndexReloader {
+
+    interface Rebuild {
+        void run() throws SQLException;
+    }
+
+    private static ExecutorService executor;
+    private static boolean stopped = false;
+
+    private final String name;
+    private final long intervalMs;
+    private final Rebuild rebuild;
+
+    private volatile boolean loaded = false;
+    private volatile long builtAt = 0;
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    IndexReloader(String name, long intervalMs, Rebuild rebuild) {
+        this.name = name;
+        this.intervalMs = intervalMs;
+        this.rebuild = rebuild;
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Called by the index at the end of a successful rebuild.
+     */
+    void built() {
+        loaded = true;
+        builtAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Makes the next access queue a rebuild, e.g. after a refresh failed.
+     */
+    void expire() {
+        builtAt = 0;
+    }
+
+    void ensureLoaded() throws SQLException {
+        ensureLoaded(false);
+    }
+
+    /**
+     * @param due true if the index knows it is out of date regardless of its age
+     */
+    void ensureLoaded(boolean due) throws SQLException {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    rebuild.run();
+                }
+            }
+            return;
+        }
+        if ((due || System.currentTimeMillis() - builtAt > intervalMs) && rebuilding.compareAndSet(false, true)) {
+            if (!submit(this::rebuildQuietly)) {
+                rebuilding.set(false);
+            }
+        }
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild.run();
+        } catch (SQLException e) {
+            System.err.println("Background " + name + " rebuild failed: " + e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private static synchronized boolean submit(Runnable task) {
+        if (stopped) return false;
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "index-rebuild");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stops background rebuilds, waiting briefly for one in progress.
+     * Called when the web application stops.
+     */
+    public static void shutdown() {
+        ExecutorService running;
+        synchronized (IndexReloader.class) {
+            stopped = true;
+            running = executor;
+            executor = null;
+        }
+        if (running == null) return;
+        running.shutdownNow();
+        try {
+            if (!running.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("Index rebuild did not stop within 5 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ethioskill.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset-pagination token: the sort key and id of the last row on a page.
+ * The next page starts strictly after (key, id), so deep pages cost the same
+ * as the first one.
+ */
+public class PageCursor {
+
+    private final String key;
+    private final int id;
+
+    public PageCursor(String key, int id) {
+        this.key = key == null ? "" : key;
+        this.id = id;
+    }
+
+    public String getKey() { return key; }
+    public int getId() { return id; }
+
+    public String encode() {
+        String raw = id + ":" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the decoded cursor, or null for an empty token
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            if (sep <= 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new PageCursor(raw.substring(sep + 1), Integer.parseInt(raw.substring(0, sep)));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException and Base64 errors land here too
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package ethioskill.search;
+
+import ethioskill.database.DBConnection;
+import ethioskill.database.DataVersions;
+import ethioskill.models.User;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory catalogue of verified providers used by the seeker search.
+ *
+ * Every provider gets a dense document number. Skill, city and availability
+ * filters are BitSet postings that are intersected; the free-text term is
+ * matched through a bigram/trigram index over name and skill and then confirmed
+ * with a substring check, which gives the same results as the old
+ * {@code LIKE '%term%'} query without a table scan. A separate
+ * {@link FullTextIndex} serves relevance-ranked searches that also cover
+ * the description.
+ *
+ * The index is built from MySQL on first use and kept current by calling
+ * {@link #refreshProvider(int)} after any write that changes a provider.
+ * A full rebuild runs in the background every REBUILD_INTERVAL_MS as a
+ * backstop for edits made outside the application; changes that arrive
+ * during a rebuild are journalled and replayed onto its result.
+ */
+public class ProviderIndex {
+
+    private static final long REBUILD_INTERVAL_MS = 15 * 60 * 1000;
+
+    private static final String SELECT_SQL =
+        "SELECT u.user_id, u.full_name, u.phone_number, u.status, " +
+        "pd.city, pd.primary_skill, pd.payment_type, pd.description, " +
+        "pd.availability_status, pd.photo_path " +
+        "FROM users u " +
+        "JOIN provider_details pd ON u.user_id = pd.provider_id " +
+        "WHERE u.role = 'Provider' AND u.status = 'Verified'";
+
+    private static final ProviderIndex INSTANCE = new ProviderIndex();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<User> docs = new ArrayList<>();
+    private final Map<Integer, Integer> docByUserId = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final Map<String, BitSet> bySkill = new HashMap<>();
+    private final Map<String, BitSet> byCity = new HashMap<>();
+    private final Map<String, BitSet> byAvailability = new HashMap<>();
+    private final Map<String, BitSet> grams = new HashMap<>();
+    private final FullTextIndex text = new FullTextIndex();
+
+    // Providers changed while a rebuild is reading the table (null = removed), replayed onto its result
+    private Map<Integer, User> journal;
+
+    private final IndexReloader reloader = new IndexReloader("provider index", REBUILD_INTERVAL_MS, this::rebuild);
+
+    private ProviderIndex() {}
+
+    public static ProviderIndex getInstance() {
+        return INSTANCE;
+    }
+
+    // ================= QUERIES =================
+
+    /**
+     * Returns one page of verified providers matching every non-empty filter,
+     * ordered by name then id, starting strictly after {@code after}.
+     * Only the page itself is sorted, so every page costs the same.
+     * A non-null {@code freeOn} keeps only providers with no booking that day;
+     * it must be a date {@link BookingCalendar#covers covered} by the calendar.
+     *
+     * @throws SQLException if the index has never been loaded and the database is unreachable
+     */
+    public ResultPage<User> search(String skill, String city, String availability, String term,
+                                   LocalDate freeOn, PageCursor after, int limit) throws SQLException {
+        reloader.ensureLoaded();
+        BookingCalendar calendar = BookingCalendar.getInstance();
+        lock.readLock().lock();
+        try {
+            BitSet result = matchLocked(skill, city, availability, term);
+
+            // Keep the limit+1 smallest entries after the cursor in a max-heap
+            PriorityQueue<User> heap = new PriorityQueue<>(limit + 2, BY_NAME.reversed());
+            for (int doc = result.nextSetBit(0); doc >= 0; doc = result.nextSetBit(doc + 1)) {
+                User p = docs.get(doc);
+                if (after != null && compareToCursor(p, after) <= 0) continue;
+                if (freeOn != null && calendar.isBooked(p.getId(), freeOn)) continue;
+                heap.offer(p);
+                if (heap.size() > limit + 1) heap.poll();
+            }
+
+            List<User> page = new ArrayList<>(heap);
+            page.sort(BY_NAME);
+            String nextCursor = null;
+            if (page.size() > limit) {
+                page.remove(page.size() - 1);
+                User last = page.get(page.size() - 1);
+                nextCursor = new PageCursor(last.getFullName(), last.getId()).encode();
+            }
+            return new ResultPage<>(page, nextCursor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Relevance-ranked full-text search over name, skill and description,
+     * restricted by the same optional filters, including {@code freeOn}. Pages
+     * are ordered by score (best first) then id; the cursor carries the last
+     * score and id, so it is not valid for {@link #search}.
+     */
+    public ResultPage<User> searchFullText(String query, String skill, String city, String availability,
+                                           LocalDate freeOn, PageCursor after, int limit) throws SQLException {
+        reloader.ensureLoaded();
+        BookingCalendar calendar = BookingCalendar.getInstance();
+        lock.readLock().lock();
+        try {
+            BitSet allowed = matchLocked(skill, city, availability, null);
+            float afterScore = after != null ? parseScore(after.getKey()) : 0f;
+
+            PriorityQueue<Scored> heap = new PriorityQueue<>(limit + 2, BY_SCORE.reversed());
+            for (Map.Entry<Integer, Float> hit : text.score(query).entrySet()) {
+                Integer doc = docByUserId.get(hit.getKey());
+                if (doc == null || !allowed.get(doc)) continue;
+                Scored scored = new Scored(docs.get(doc), hit.getValue());
+                if (after != null && compareToCursor(scored, afterScore, after.getId()) <= 0) continue;
+                if (freeOn != null && calendar.isBooked(scored.provider.getId(), freeOn)) continue;
+                heap.offer(scored);
+                if (heap.size() > limit + 1) heap.poll();
+            }
+
+            List<Scored> ranked = new ArrayList<>(heap);
+            ranked.sort(BY_SCORE);
+            String nextCursor = null;
+            if (ranked.size() > limit) {
+                ranked.remove(ranked.size() - 1);
+                Scored last = ranked.get(ranked.size() - 1);
+                nextCursor = new PageCursor(Float.toString(last.score), last.provider.getId()).encode();
+            }
+            List<User> page = new ArrayList<>(ranked.size());
+            for (Scored s : ranked) {
+                page.add(s.provider);
+            }
+            return new ResultPage<>(page, nextCursor, true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static final class Scored {
+        final User provider;
+        final float score;
+
+        Scored(User provider, float score) {
+            this.provider = provider;
+            this.score = score;
+        }
+    }
+
+    // Best score first, ties broken by id so paging is stable
+    private static final Comparator<Scored> BY_SCORE = (a, b) -> {
+        int cmp = Float.compare(b.score, a.score);
+        return cmp != 0 ? cmp : Integer.compare(a.provider.getId(), b.provider.getId());
+    };
+
+    private static int compareToCursor(Scored s, float score, int id) {
+        int cmp = Float.compare(score, s.score);
+        return cmp != 0 ? cmp : Integer.compare(s.provider.getId(), id);
+    }
+
+    private static float parseScore(String key) {
+        try {
+            return Float.parseFloat(key);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private BitSet matchLocked(String skill, String city, String availability, String term) {
+        BitSet result = (BitSet) live.clone();
+        if (!isEmpty(skill)) and(result, bySkill.get(normalize(skill)));
+        if (!isEmpty(city)) and(result, byCity.get(normalize(city)));
+        if (!isEmpty(availability)) and(result, byAvailability.get(normalize(availability)));
+
+        if (!isEmpty(term)) {
+            String needle = normalize(term);
+            // Narrow with the gram postings, then confirm with a real substring check
+            for (String gram : queryGrams(needle)) {
+                and(result, grams.get(gram));
+                if (result.isEmpty()) break;
+            }
+            for (int doc = result.nextSetBit(0); doc >= 0; doc = result.nextSetBit(doc + 1)) {
+                User p = docs.get(doc);
+                if (!contains(p.getFullName(), needle) && !contains(p.getSkill(), needle)) {
+                    result.clear(doc);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int compareToCursor(User p, PageCursor cursor) {
+        String name = p.getFullName() == null ? "" : p.getFullName();
+        int cmp = String.CASE_INSENSITIVE_ORDER.compare(name, cursor.getKey());
+        return cmp != 0 ? cmp : Integer.compare(p.getId(), cursor.getId());
+    }
+
+    /**
+     * Number of verified providers currently indexed.
+     */
+    public int size() throws SQLException {
+        reloader.ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return live.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static final Comparator<User> BY_NAME = Comparator
+        .comparing((User u) -> u.getFullName() == null ? "" : u.getFullName(), String.CASE_INSENSITIVE_ORDER)
+        .thenComparingInt(User::getId);
+
+    // ================= MAINTENANCE =================
+
+    /**
+     * Re-reads one provider and updates (or removes) its entry.
+     * Call after approval/rejection, profile or service edits, availability
+     * changes and deletions.
+     */
+    public void refreshProvider(int userId) {
+        if (!reloader.isLoaded() && !rebuildRunning()) return; // the first load will pick it up
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_SQL + " AND u.user_id = ?")) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                apply(userId, rs.next() ? mapRow(rs) : null);
+            }
+        } catch (SQLException e) {
+            System.err.println("Database error refreshing provider index for " + userId + ": " + e.getMessage());
+            // Force a full rebuild on next access rather than serving a stale entry
+            reloader.expire();
+        }
+    }
+
+    /**
+     * Drops a provider from the index without touching the database.
+     */
+    public void removeProvider(int userId) {
+        apply(userId, null);
+    }
+
+    private void apply(int userId, User provider) {
+        lock.writeLock().lock();
+        try {
+            if (journal != null) {
+                journal.put(userId, provider);
+            }
+            removeLocked(userId);
+            if (provider != null) {
+                addLocked(provider);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean rebuildRunning() {
+        lock.readLock().lock();
+        try {
+            return journal != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reloads the whole catalogue from MySQL. Providers changed while the
+     * query runs are replayed onto the new data.
+     */
+    public synchronized void rebuild() throws SQLException {
+        lock.writeLock().lock();
+        try {
+            journal = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<User> providers = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SELECT_SQL)) {
+            while (rs.next()) {
+                providers.add(mapRow(rs));
+            }
+        } catch (SQLException e) {
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            docByUserId.clear();
+            live.clear();
+            bySkill.clear();
+            byCity.clear();
+            byAvailability.clear();
+            grams.clear();
+            text.clear();
+            // Insert in name order so postings iterate roughly sorted
+            providers.sort(BY_NAME);
+            for (User p : providers) {
+                addLocked(p);
+            }
+            for (Map.Entry<Integer, User> change : journal.entrySet()) {
+                removeLocked(change.getKey());
+                if (change.getValue() != null) {
+                    addLocked(change.getValue());
+                }
+            }
+            journal = null;
+            reloader.built();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // A rebuild may pick up edits made outside the app
+        DataVersions.bump(DataVersions.Domain.PROVIDERS);
+    }
+
+    private void addLocked(User p) {
+        int doc = docs.size();
+        docs.add(p);
+        docByUserId.put(p.getId(), doc);
+        live.set(doc);
+        posting(bySkill, normalize(p.getSkill())).set(doc);
+        posting(byCity, normalize(p.getCity())).set(doc);
+        posting(byAvailability, normalize(p.getAvailability())).set(doc);
+        for (String gram : indexGrams(p)) {
+            posting(grams, gram).set(doc);
+        }
+        text.add(p.getId(), p.getFullName(), p.getSkill(), p.getDescription());
+    }
+
+    private void removeLocked(int userId) {
+        Integer doc = docByUserId.remove(userId);
+        if (doc == null) return;
+        text.remove(userId);
+        // Leave a tombstone; the slot is reclaimed on the next rebuild
+        live.clear(doc);
+        docs.set(doc, TOMBSTONE);
+    }
+
+    private static final User TOMBSTONE = new User();
+
+    // ================= HELPERS =================
+
+    static User mapRow(ResultSet rs) throws SQLException {
+        User provider = new User();
+        provider.setId(rs.getInt("user_id"));
+        provider.setFullName(rs.getString("full_name"));
+        provider.setPhone(rs.getString("phone_number"));
+        provider.setCity(rs.getString("city"));
+        provider.setSkill(rs.getString("primary_skill"));
+        provider.setPaymentType(rs.getString("payment_type"));
+        provider.setDescription(rs.getString("description"));
+        provider.setAvailability(rs.getString("availability_status"));
+        provider.setPhotoPath(rs.getString("photo_path"));
+        provider.setStatus(rs.getString("status"));
+        return provider;
+    }
+
+    private static Set<String> indexGrams(User p) {
+        Set<String> out = new HashSet<>();
+        addGrams(out, normalize(p.getFullName()));
+        addGrams(out, normalize(p.getSkill()));
+        return out;
+    }
+
+    private static void addGrams(Set<String> out, String text) {
+        for (int n = 2; n <= 3; n++) {
+            for (int i = 0; i + n <= text.length(); i++) {
+                out.add(text.substring(i, i + n));
+            }
+        }
+    }
+
+    /**
+     * The grams a term must contain: its trigrams, or the term itself if it is
+     * a bigram. Single characters aren't indexed and rely on the substring check.
+     */
+    private static Set<String> queryGrams(String needle) {
+        Set<String> out = new HashSet<>();
+        if (needle.length() < 2) {
+            return out;
+        } else if (needle.length() <= 3) {
+            out.add(needle);
+        } else {
+            for (int i = 0; i + 3 <= needle.length(); i++) {
+                out.add(needle.substring(i, i + 3));
+            }
+        }
+        return out;
+    }
+
+    private static BitSet posting(Map<String, BitSet> map, String key) {
+        return map.computeIfAbsent(key, k -> new BitSet());
+    }
+
+    private static void and(BitSet target, BitSet posting) {
+        if (posting == null) {
+            target.clear();
+        } else {
+            target.and(posting);
+        }
+    }
+
+    private static boolean contains(String haystack, String needle) {
+        return haystack != null && normalize(haystack).contains(needle);
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,31 @@
+package ethioskill.search;
+
+import java.util.List;
+
+/**
+ * One page of results plus the token for the next page (null on the last page).
+ * Searches that can rank by relevance also say whether this page was ranked.
+ */
+public class ResultPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+    private final boolean hasMore;
+    private final Boolean ranked; // null (left out of the JSON) for plain listings
+
+    public ResultPage(List<T> items, String nextCursor) {
+        this(items, nextCursor, null);
+    }
+
+    public ResultPage(List<T> items, String nextCursor, Boolean ranked) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+        this.ranked = ranked;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean isHasMore() { return hasMore; }
+    public Boolean getRanked() { return ranked; }
+}
@@ -0,0 +1,149 @@
+package ethioskill.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Tokenizer for provider text in Amharic (Ge'ez script) and Latin script.
+ *
+ * Each word yields a lower-cased surface form plus a "folded" key that is
+ * shared by the common ways of writing the same name: Ethiopic syllables are
+ * transliterated to Latin, diacritics are stripped, doubled letters are
+ * collapsed and a/e are merged (the first-order vowel is written either way).
+ * So ሰላም, "Selam" and "Salam" all meet on the key "selem", and "Tadesse"
+ * and "Tadese" both fold to "tedese". Amharic words with an attached
+ * preposition (የኤሌክትሪክ, "of electricity") also yield the bare word.
+ */
+public class TextAnalyzer {
+
+    /** One analysed word. */
+    public static class Token {
+        public final String surface;
+        public final String folded;
+
+        Token(String surface, String folded) {
+            this.surface = surface;
+            this.folded = folded;
+        }
+    }
+
+    private static final int ETHIOPIC_START = 0x1200;
+    private static final int ETHIOPIC_END = 0x137F;
+
+    // Latin consonant for each 8-syllable row of the Ethiopic block, starting at U+1200.
+    // Labialised and rare rows fall back to their base consonant.
+    private static final String[] ROW_CONSONANTS = {
+        "h", "l", "h", "m", "s", "r", "s", "sh",      // U+1200 - U+123F
+        "q", "q", "q", "q", "b", "v", "t", "ch",      // U+1240 - U+127F
+        "h", "h", "n", "ny", "", "k", "k", "h",       // U+1280 - U+12BF
+        "h", "w", "", "z", "zh", "y", "d", "d",       // U+12C0 - U+12FF
+        "j", "g", "g", "g", "t", "ch", "p", "ts",     // U+1300 - U+133F
+        "ts", "f", "p", ""                            // U+1340 - U+135F
+    };
+
+    // Vowel for each of the 8 orders: ä, u, i, a, e, ə (usually silent), o, wa
+    private static final String[] ORDER_VOWELS = { "e", "u", "i", "a", "e", "", "o", "wa" };
+
+    // "of", "in/by", "for", "from" attach directly to the following word
+    private static final String AMHARIC_PREFIXES = "\u12E8\u1260\u1208\u12A8";
+
+    private TextAnalyzer() {}
+
+    public static List<Token> analyze(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && isWordChar(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = normalized.substring(start, i);
+                tokens.add(new Token(word, fold(word)));
+                // Also index the word without a leading Amharic preposition (የ, በ, ለ, ከ)
+                if (word.length() >= 3 && AMHARIC_PREFIXES.indexOf(word.charAt(0)) >= 0) {
+                    String stem = word.substring(1);
+                    tokens.add(new Token(stem, fold(stem)));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Letters and digits in any script. Ethiopic punctuation (፡ ። ፣ ...) is
+     * not a letter, so it separates words like a space does.
+     */
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || 
+               Character.getType(c) == Character.NON_SPACING_MARK ||
+               Character.getType(c) == Character.OTHER_NUMBER;
+    }
+
+    /**
+     * Script-independent matching key for a single lower-cased word.
+     */
+    public static String fold(String word) {
+        String latin = stripDiacritics(transliterate(word));
+
+        StringBuilder out = new StringBuilder(latin.length());
+        char prev = 0;
+        for (int i = 0; i < latin.length(); i++) {
+            char c = latin.charAt(i);
+            if (c == 'a') c = 'e';
+            if (c == 'p' && i + 1 < latin.length() && latin.charAt(i + 1) == 'h') {
+                c = 'f';
+                i++;
+            }
+            if (c == prev) continue; // "ss" -> "s", "bb" -> "b"
+            out.append(c);
+            prev = c;
+        }
+        return out.toString();
+    }
+
+    /**
+     * Maps Ethiopic syllables to a plain Latin spelling; other characters pass through.
+     */
+    public static String transliterate(String word) {
+        StringBuilder out = null;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c >= ETHIOPIC_START && c <= ETHIOPIC_END) {
+                if (out == null) {
+                    out = new StringBuilder(word.length() * 2).append(word, 0, i);
+                }
+                int offset = c - ETHIOPIC_START;
+                int row = offset / 8;
+                if (row < ROW_CONSONANTS.length) {
+                    out.append(ROW_CONSONANTS[row]).append(ORDER_VOWELS[offset % 8]);
+                } else if (Character.getNumericValue(c) >= 0) {
+                    // Ethiopic numerals
+                    out.append(Character.getNumericValue(c));
+                }
+            } else if (out != null) {
+                out.append(c);
+            }
+        }
+        return out == null ? word : out.toString();
+    }
+
+    private static String stripDiacritics(String word) {
+        String decomposed = Normalizer.normalize(word, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,439 @@
+package ethioskill.search;
+
+import ethioskill.database.DBConnection;
+import ethioskill.models.User;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of all users for the admin search box.
+ *
+ * Phone numbers are reduced to their 9-digit national number, so 0911...,
+ * 0711..., +251911... and 251911... are the same key, and stored in two digit
+ * tries: one forwards for prefix lookups and one reversed so the last few
+ * digits also find a number. Names go through {@link TextAnalyzer}, so a query
+ * matches a whole word, its transliterated spelling, or the start of a word.
+ *
+ * Results are ranked (exact number, then number prefix, then last digits;
+ * whole-word name hits above prefix hits) and paged by (score, id).
+ * The index is loaded on first use, kept current through
+ * {@link #refreshUser(int)} and {@link #removeUser(int)}, and rebuilt in the
+ * background every REBUILD_INTERVAL_MS as a backstop; changes that arrive
+ * during a rebuild are journalled and replayed onto its result.
+ */
+public class UserSearchIndex {
+
+    private static final long REBUILD_INTERVAL_MS = 15 * 60 * 1000;
+
+    private static final String SELECT_SQL =
+        "SELECT user_id, full_name, phone_number, role, status FROM users";
+
+    // Phone scores
+    private static final int EXACT_NUMBER = 100;
+    private static final int NUMBER_PREFIX = 60;
+    private static final int NUMBER_SUFFIX = 40;
+    // Name scores, per query word
+    private static final int EXACT_WORD = 10;
+    private static final int FOLDED_WORD = 7;
+    private static final int WORD_PREFIX = 4;
+    private static final int FIRST_WORD_BONUS = 3;
+
+    private static final int NATIONAL_NUMBER_LENGTH = 9;
+
+    private static final UserSearchIndex INSTANCE = new UserSearchIndex();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Entry> users = new HashMap<>();
+    private final DigitTrie phonePrefix = new DigitTrie();
+    private final DigitTrie phoneSuffix = new DigitTrie();
+    private final Map<String, Set<Integer>> exactWords = new HashMap<>();
+    private final TreeMap<String, Set<Integer>> foldedWords = new TreeMap<>();
+
+    // Users changed while a rebuild is reading the table (null = removed), replayed onto its result
+    private Map<Integer, User> journal;
+
+    private final IndexReloader reloader = new IndexReloader("user index", REBUILD_INTERVAL_MS, this::rebuild);
+
+    private static final class Entry {
+        final User user;
+        final String number;
+        final List<TextAnalyzer.Token> words;
+
+        Entry(User user) {
+            this.user = user;
+            this.number = nationalNumber(user.getPhone());
+            this.words = TextAnalyzer.analyze(user.getFullName());
+        }
+    }
+
+    private UserSearchIndex() {}
+
+    public static UserSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    // ================= QUERIES =================
+
+    /**
+     * Ranked search by phone number (any of the usual spellings, or its last
+     * digits) or by name. Returns one page, best match first, starting
+     * strictly after {@code after}.
+     *
+     * @throws SQLException if the index has never been loaded and the database is unreachable
+     */
+    public ResultPage<User> search(String term, PageCursor after, int limit) throws SQLException {
+        reloader.ensureLoaded();
+        Map<Integer, Integer> scores;
+        lock.readLock().lock();
+        try {
+            scores = isPhoneQuery(term) ? scorePhone(term) : scoreName(term);
+        } finally {
+            lock.readLock().unlock();
+        }
+        int afterScore = after != null ? parseScore(after.getKey()) : 0;
+
+        // Keep only the best limit+1 hits after the cursor
+        PriorityQueue<int[]> heap = new PriorityQueue<>(limit + 2, BY_SCORE.reversed());
+        for (Map.Entry<Integer, Integer> hit : scores.entrySet()) {
+            int[] scored = { hit.getValue(), hit.getKey() };
+            if (after != null && BY_SCORE.compare(scored, new int[] { afterScore, after.getId() }) <= 0) continue;
+            heap.offer(scored);
+            if (heap.size() > limit + 1) heap.poll();
+        }
+        List<int[]> ranked = new ArrayList<>(heap);
+        ranked.sort(BY_SCORE);
+
+        String nextCursor = null;
+        if (ranked.size() > limit) {
+            ranked.remove(ranked.size() - 1);
+            int[] last = ranked.get(ranked.size() - 1);
+            nextCursor = new PageCursor(Integer.toString(last[0]), last[1]).encode();
+        }
+        List<User> page = new ArrayList<>(ranked.size());
+        lock.readLock().lock();
+        try {
+            for (int[] hit : ranked) {
+                Entry e = users.get(hit[1]);
+                if (e != null) {
+                    page.add(e.user);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new ResultPage<>(page, nextCursor);
+    }
+
+    // {score, id}: best score first, then lowest id
+    private static final Comparator<int[]> BY_SCORE = (a, b) -> {
+        int cmp = Integer.compare(b[0], a[0]);
+        return cmp != 0 ? cmp : Integer.compare(a[1], b[1]);
+    };
+
+    private static int parseScore(String key) {
+        try {
+            return Integer.parseInt(key);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    static boolean isPhoneQuery(String term) {
+        boolean digit = false;
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if (c != '+' && c != ' ' && c != '-' && c != '(' && c != ')') {
+                return false;
+            }
+        }
+        return digit;
+    }
+
+    private Map<Integer, Integer> scorePhone(String term) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        String digits = digitsOnly(term);
+        String trimmed = term.trim();
+
+        // A leading 0, + or 251 means the start of the number was typed
+        boolean anchored = trimmed.startsWith("0") || trimmed.startsWith("+") ||
+                           (digits.startsWith("251") && digits.length() > 3);
+        String start = anchored ? stripQueryPrefix(digits) : digits;
+
+        if (!start.isEmpty()) {
+            phonePrefix.visitPrefix(start, (id, extra) ->
+                scores.merge(id, extra == 0 ? EXACT_NUMBER : NUMBER_PREFIX + start.length(), Math::max));
+        }
+        if (!anchored) {
+            String reversed = new StringBuilder(digits).reverse().toString();
+            phoneSuffix.visitPrefix(reversed, (id, extra) ->
+                scores.merge(id, extra == 0 ? EXACT_NUMBER : NUMBER_SUFFIX + digits.length(), Math::max));
+        }
+        return scores;
+    }
+
+    /**
+     * Every query word has to match one of the name's words; the score is the
+     * sum of each query word's best match.
+     */
+    private Map<Integer, Integer> scoreName(String term) {
+        List<TextAnalyzer.Token> query = TextAnalyzer.analyze(term);
+        Map<Integer, Integer> scores = null;
+
+        for (int i = 0; i < query.size(); i++) {
+            TextAnalyzer.Token token = query.get(i);
+            Map<Integer, Integer> best = new HashMap<>();
+            collect(best, exactWords.get(token.surface), EXACT_WORD);
+            if (!token.folded.isEmpty()) {
+                collect(best, foldedWords.get(token.folded), FOLDED_WORD);
+                for (Set<Integer> ids : foldedWords.subMap(token.folded, false,
+                        token.folded + Character.MAX_VALUE, false).values()) {
+                    collect(best, ids, WORD_PREFIX);
+                }
+            }
+            if (i == 0) {
+                for (Map.Entry<Integer, Integer> hit : best.entrySet()) {
+                    if (startsWithWord(users.get(hit.getKey()), token)) {
+                        hit.setValue(hit.getValue() + FIRST_WORD_BONUS);
+                    }
+                }
+            }
+
+            if (scores == null) {
+                scores = best;
+            } else {
+                // AND: keep only users that matched every word so far
+                Map<Integer, Integer> next = new HashMap<>();
+                for (Map.Entry<Integer, Integer> hit : scores.entrySet()) {
+                    Integer s = best.get(hit.getKey());
+                    if (s != null) {
+                        next.put(hit.getKey(), hit.getValue() + s);
+                    }
+                }
+                scores = next;
+            }
+            if (scores.isEmpty()) break;
+        }
+        return scores != null ? scores : new HashMap<>();
+    }
+
+    private static void collect(Map<Integer, Integer> best, Set<Integer> ids, int score) {
+        if (ids == null) return;
+        for (int id : ids) {
+            best.merge(id, score, Math::max);
+        }
+    }
+
+    private static boolean startsWithWord(Entry e, TextAnalyzer.Token token) {
+        if (e == null || e.words.isEmpty()) return false;
+        String first = e.words.get(0).folded;
+        return !token.folded.isEmpty() && first.startsWith(token.folded);
+    }
+
+    // ================= MAINTENANCE =================
+
+    /**
+     * Re-reads one user and updates (or removes) its entry. Call after signup,
+     * profile edits and status changes.
+     */
+    public void refreshUser(int userId) {
+        if (!reloader.isLoaded() && !rebuildRunning()) return; // the first load will pick it up
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_SQL + " WHERE user_id = ?")) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                apply(userId, rs.next() ? mapRow(rs) : null);
+            }
+        } catch (SQLException e) {
+            System.err.println("Database error refreshing user index for " + userId + ": " + e.getMessage());
+            // Force a full rebuild on next access rather than serving a stale entry
+            reloader.expire();
+        }
+    }
+
+    /**
+     * Drops a user from the index without touching the database.
+     */
+    public void removeUser(int userId) {
+        apply(userId, null);
+    }
+
+    private void apply(int userId, User user) {
+        lock.writeLock().lock();
+        try {
+            if (journal != null) {
+                journal.put(userId, user);
+            }
+            removeLocked(userId);
+            if (user != null) {
+                addLocked(user);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean rebuildRunning() {
+        lock.readLock().lock();
+        try {
+            return journal != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reloads every user from MySQL, reading the table as a stream. Users
+     * changed while the query runs are replayed onto the new data.
+     */
+    public synchronized void rebuild() throws SQLException {
+        lock.writeLock().lock();
+        try {
+            journal = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<User> all = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_SQL,
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    all.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            users.clear();
+            phonePrefix.clear();
+            phoneSuffix.clear();
+            exactWords.clear();
+            foldedWords.clear();
+            for (User u : all) {
+                addLocked(u);
+            }
+            for (Map.Entry<Integer, User> change : journal.entrySet()) {
+                removeLocked(change.getKey());
+                if (change.getValue() != null) {
+                    addLocked(change.getValue());
+                }
+            }
+            journal = null;
+            reloader.built();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addLocked(User user) {
+        Entry e = new Entry(user);
+        users.put(user.getId(), e);
+        if (!e.number.isEmpty()) {
+            phonePrefix.add(e.number, user.getId());
+            phoneSuffix.add(new StringBuilder(e.number).reverse().toString(), user.getId());
+        }
+        for (TextAnalyzer.Token t : e.words) {
+            exactWords.computeIfAbsent(t.surface, k -> new HashSet<>()).add(user.getId());
+            if (!t.folded.isEmpty()) {
+                foldedWords.computeIfAbsent(t.folded, k -> new HashSet<>()).add(user.getId());
+            }
+        }
+    }
+
+    private void removeLocked(int userId) {
+        Entry e = users.remove(userId);
+        if (e == null) return;
+        if (!e.number.isEmpty()) {
+            phonePrefix.remove(e.number, userId);
+            phoneSuffix.remove(new StringBuilder(e.number).reverse().toString(), userId);
+        }
+        for (TextAnalyzer.Token t : e.words) {
+            removePosting(exactWords, t.surface, userId);
+            removePosting(foldedWords, t.folded, userId);
+        }
+    }
+
+    private static void removePosting(Map<String, Set<Integer>> index, String key, int id) {
+        Set<Integer> ids = index.get(key);
+        if (ids == null) return;
+        ids.remove(id);
+        if (ids.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    // ================= HELPERS =================
+
+    private static User mapRow(ResultSet rs) throws SQLException {
+        return new User(rs.getInt("user_id"), rs.getString("full_name"), rs.getString("phone_number"),
+                        rs.getString("role"), rs.getString("status"));
+    }
+
+    /**
+     * The 9-digit national number: digits only, without +251/251 or the
+     * leading trunk 0. Anything that doesn't look Ethiopian is kept as digits.
+     */
+    static String nationalNumber(String phone) {
+        return stripCountryAndTrunk(digitsOnly(phone));
+    }
+
+    private static String stripCountryAndTrunk(String digits) {
+        if (digits.startsWith("251") && digits.length() > NATIONAL_NUMBER_LENGTH) {
+            return digits.substring(3);
+        }
+        if (digits.startsWith("0")) {
+            return digits.substring(1);
+        }
+        return digits;
+    }
+
+    // Unlike a stored number, a partial query may be shorter than 9 digits
+    private static String stripQueryPrefix(String digits) {
+        if (digits.startsWith("251")) {
+            return digits.substring(3);
+        }
+        if (digits.startsWith("0")) {
+            return digits.substring(1);
+        }
+        return digits;
+    }
+
+    private static String digitsOnly(String text) {
+        if (text == null) return "";
+        StringBuilder out = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}